@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2012-2018 Codestorming.org
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Codestorming - initial API and implementation
+ */
+package org.codestorming.collection;
+
+import java.util.AbstractList;
+import java.util.Iterator;
+
+/**
+ * Skeletal {@link OrderedSet} implementation backed by a random access data store.
+ * <p>
+ * The {@link #equals(Object)} and {@link #hashCode()} methods follow the ones of {@link OrderedHashSet}.
+ *
+ * @author Thaedrik [thaedrik@codestorming.org]
+ */
+abstract class AbstractOrderedSet<E> extends AbstractList<E> implements OrderedSet<E> {
+
+	@Override
+	public int lastIndexOf(Object o) {
+		// This is a Set, there is at most one occurence of an object.
+		return indexOf(o);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj == this) {
+			return true;
+		}// else
+		if (!(obj instanceof OrderedSet)) {
+			return false;
+		}// else
+		OrderedSet<?> other = (OrderedSet<?>) obj;
+		if (size() != other.size()) {
+			return false;
+		}// else
+		Iterator<E> iter = iterator();
+		Iterator<?> iter2 = other.iterator();
+		while (iter.hasNext()) {
+			E o = iter.next();
+			Object o2 = iter2.next();
+			if (o == null ? o2 != null : !o.equals(o2)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public int hashCode() {
+		int hashcode = 0;
+		for (E elt : this) {
+			hashcode = 31 * hashcode + (elt == null ? 0 : elt.hashCode());
+		}
+		return hashcode;
+	}
+}
@@ -0,0 +1,420 @@
+/*
+ * Copyright (c) 2012-2018 Codestorming.org
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Codestorming - initial API and implementation
+ */
+package org.codestorming.collection;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.ListIterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A <em>thread-safe</em> {@link OrderedSet} optimized for concurrent writers, where a single thread at a time applies
+ * the modifications.
+ * <p>
+ * The additions and removals are not applied immediately: they are enqueued in a lock-free queue and applied in
+ * batches to an internal {@link OrderedHashSet} by a single writer. The writer is, either the first thread that wins
+ * the drain flag after enqueuing its operation (<em>auto-drain</em> mode, the default), or an owner thread calling
+ * {@link #drain()} periodically.
+ * <p>
+ * The read operations are performed on the last published {@link #snapshot() snapshot}, an immutable copy of the set.
+ * Since copying the set costs a time proportional to its size, a new snapshot is only due once a full batch of
+ * operations has been applied, or when the publication delay has elapsed since the previous one. The snapshots are
+ * published lazily: the copy is made by the first read occurring once a snapshot is due, or by the writer at its next
+ * operation if it is applying operations at that time. Hence, a writer applying many batches without being read does
+ * not copy the set, and at most one copy is made per batch or per publication delay, whatever the number of readers.
+ * The {@link #flush()} method applies the pending operations and publishes a snapshot immediately.
+ * <p>
+ * Hence, a modification is only visible once a snapshot containing it has been published, and the methods modifying
+ * this set return {@code true} as soon as the operation is enqueued.
+ * <p>
+ * The positional modifications ({@link #add(int, Object)}, {@link #set(int, Object)}, {@link #remove(int)}...) are
+ * <strong>not supported</strong>.
+ *
+ * @author Thaedrik [thaedrik@codestorming.org]
+ * @see Collections3#synchronizedOrderedSet(OrderedSet)
+ */
+public class BatchedOrderedSet<E> extends AbstractOrderedSet<E> {
+
+	/**
+	 * Default number of operations applied between two snapshot publications.
+	 */
+	private static final int DEFAULT_BATCH_SIZE = 1024;
+
+	/**
+	 * Default maximum delay between the application of an operation and the publication of a snapshot, in milliseconds
+	 * (as long as operations are still being applied).
+	 */
+	private static final long DEFAULT_PUBLICATION_DELAY = 10;
+
+	private static final byte ADD = 0;
+
+	private static final byte REMOVE = 1;
+
+	private static final byte CLEAR = 2;
+
+	/**
+	 * The set, only accessed by the thread holding the {@link #draining} flag.
+	 */
+	private final OrderedHashSet<E> set = new OrderedHashSet<>();
+
+	private final Queue<Operation> operations = new ConcurrentLinkedQueue<>();
+
+	private final AtomicBoolean draining = new AtomicBoolean();
+
+	private final int batchSize;
+
+	private final long publicationDelay;
+
+	private final boolean autoDrain;
+
+	/**
+	 * Number of operations applied since the last publication, only accessed by the writer.
+	 */
+	private int unpublished;
+
+	/**
+	 * Time of the last publication ({@link System#nanoTime()}), only modified by the writer.
+	 */
+	private volatile long lastPublication = System.nanoTime();
+
+	/**
+	 * Whether operations were applied since the last publication, only modified by the writer.
+	 */
+	private volatile boolean unpublishedChanges;
+
+	/**
+	 * Whether a full batch of operations was applied since the last publication, only modified by the writer.
+	 */
+	private volatile boolean publicationDue;
+
+	/**
+	 * Whether a reader requested the writer to publish a snapshot while it was applying operations.
+	 */
+	private volatile boolean publicationRequested;
+
+	private volatile OrderedSet<E> snapshot = Collections3.unmodifiableOrderedSet(new OrderedHashSet<>(0));
+
+	/**
+	 * Creates a new {@code BatchedOrderedSet} in <em>auto-drain</em> mode.
+	 */
+	public BatchedOrderedSet() {
+		this(DEFAULT_BATCH_SIZE, DEFAULT_PUBLICATION_DELAY, true);
+	}
+
+	/**
+	 * Creates a new {@code BatchedOrderedSet}.
+	 *
+	 * @param batchSize Number of applied operations after which a new snapshot is due.
+	 * @param publicationDelay Delay in milliseconds after which a new snapshot of the applied operations is due, even
+	 * if the batch is not full.
+	 * @param autoDrain {@code true} if the thread enqueuing an operation should try to apply the pending operations,
+	 * {@code false} if they are only applied by calls to {@link #drain()}.
+	 * @throws IllegalArgumentException if {@code batchSize <= 0} or {@code publicationDelay < 0}.
+	 */
+	public BatchedOrderedSet(int batchSize, long publicationDelay, boolean autoDrain) {
+		if (batchSize <= 0) {
+			throw new IllegalArgumentException("The batch size must be positive: " + batchSize);
+		} else if (publicationDelay < 0) {
+			throw new IllegalArgumentException("The publication delay cannot be negative: " + publicationDelay);
+		}// else
+		this.batchSize = batchSize;
+		this.publicationDelay = TimeUnit.MILLISECONDS.toNanos(publicationDelay);
+		this.autoDrain = autoDrain;
+	}
+
+	/**
+	 * Returns the last published snapshot of this set.
+	 * <p>
+	 * If a full batch of operations was applied without being published, or if the publication delay has elapsed since
+	 * the previous publication, a snapshot is published first. If another thread is applying operations, it is
+	 * requested to publish the snapshot at its next operation, and the previous snapshot is returned.
+	 *
+	 * @return the last published snapshot of this set (unmodifiable).
+	 */
+	public OrderedSet<E> snapshot() {
+		if (unpublishedChanges && (publicationDue || System.nanoTime() - lastPublication >= publicationDelay)) {
+			if (draining.compareAndSet(false, true)) {
+				try {
+					if (unpublished > 0) {
+						publish();
+					}
+				} finally {
+					release();
+				}
+			} else {
+				publicationRequested = true;
+			}
+		}
+		return snapshot;
+	}
+
+	/**
+	 * Applies the pending operations, unless another thread is already doing it.
+	 * <p>
+	 * The applied operations are published by the next {@link #snapshot()}, once a full batch has been applied or the
+	 * publication delay has elapsed.
+	 * <p>
+	 * In <em>auto-drain</em> mode, the queue is checked again after releasing the drain flag, since the threads which
+	 * enqueued an operation meanwhile could not apply it.
+	 *
+	 * @return {@code true} if the calling thread applied the pending operations, {@code false} if another thread was
+	 * applying them.
+	 */
+	public boolean drain() {
+		if (!draining.compareAndSet(false, true)) {
+			return false;
+		}// else
+		do {
+			try {
+				applyPendingOperations();
+			} finally {
+				draining.set(false);
+			}
+		} while (autoDrain && !operations.isEmpty() && draining.compareAndSet(false, true));
+		return true;
+	}
+
+	/**
+	 * Applies the pending operations and publishes a snapshot, waiting for the thread currently applying operations if
+	 * any.
+	 * <p>
+	 * Once this method returns, the operations enqueued by the calling thread are visible in the {@link #snapshot()}.
+	 */
+	public void flush() {
+		while (!draining.compareAndSet(false, true)) {
+			Thread.yield();
+		}
+		try {
+			applyPendingOperations();
+			if (unpublished > 0) {
+				publish();
+			}
+		} finally {
+			release();
+		}
+	}
+
+	/**
+	 * Releases the drain flag, then applies the operations enqueued meanwhile in <em>auto-drain</em> mode.
+	 */
+	private void release() {
+		draining.set(false);
+		if (autoDrain && !operations.isEmpty()) {
+			drain();
+		}
+	}
+
+	private void enqueue(byte type, Object element) {
+		operations.offer(new Operation(type, element));
+		afterEnqueue();
+	}
+
+	private void afterEnqueue() {
+		if (autoDrain) {
+			// If another thread holds the flag, it applies the operation after releasing it
+			drain();
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private void applyPendingOperations() {
+		Operation operation;
+		while ((operation = operations.poll()) != null) {
+			switch (operation.type) {
+			case ADD:
+				set.add((E) operation.element);
+				break;
+			case REMOVE:
+				set.remove(operation.element);
+				break;
+			default:
+				set.clear();
+			}
+			if (++unpublished == batchSize) {
+				unpublishedChanges = true;
+				publicationDue = true;
+			}
+			if (publicationRequested) {
+				publish();
+			}
+		}
+		if (unpublished > 0) {
+			unpublishedChanges = true;
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private void publish() {
+		snapshot = Collections3.unmodifiableOrderedSet((OrderedSet<E>) set.clone());
+		unpublished = 0;
+		unpublishedChanges = false;
+		publicationDue = false;
+		publicationRequested = false;
+		lastPublication = System.nanoTime();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The addition is applied asynchronously.
+	 *
+	 * @return {@code true} (the operation is always enqueued).
+	 */
+	@Override
+	public boolean add(E e) {
+		enqueue(ADD, e);
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The additions are applied asynchronously.
+	 *
+	 * @return {@code true} if the given collection is not empty.
+	 */
+	@Override
+	public boolean addAll(Collection<? extends E> c) {
+		for (E e : c) {
+			operations.offer(new Operation(ADD, e));
+		}
+		afterEnqueue();
+		return !c.isEmpty();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The removal is applied asynchronously.
+	 *
+	 * @return {@code true} (the operation is always enqueued).
+	 */
+	@Override
+	public boolean remove(Object o) {
+		enqueue(REMOVE, o);
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The removals are applied asynchronously.
+	 *
+	 * @return {@code true} if the given collection is not empty.
+	 */
+	@Override
+	public boolean removeAll(Collection<?> c) {
+		for (Object o : c) {
+			operations.offer(new Operation(REMOVE, o));
+		}
+		afterEnqueue();
+		return !c.isEmpty();
+	}
+
+	@Override
+	public boolean retainAll(Collection<?> c) {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The clearing is applied asynchronously.
+	 */
+	@Override
+	public void clear() {
+		enqueue(CLEAR, null);
+	}
+
+	@Override
+	public E get(int index) {
+		return snapshot().get(index);
+	}
+
+	@Override
+	public int size() {
+		return snapshot().size();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return snapshot().isEmpty();
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		return snapshot().contains(o);
+	}
+
+	@Override
+	public boolean containsAll(Collection<?> c) {
+		return snapshot().containsAll(c);
+	}
+
+	@Override
+	public int indexOf(Object o) {
+		return snapshot().indexOf(o);
+	}
+
+	@Override
+	public Iterator<E> iterator() {
+		return snapshot().iterator();
+	}
+
+	@Override
+	public ListIterator<E> listIterator() {
+		return snapshot().listIterator();
+	}
+
+	@Override
+	public ListIterator<E> listIterator(int index) {
+		return snapshot().listIterator(index);
+	}
+
+	@Override
+	public Object[] toArray() {
+		return snapshot().toArray();
+	}
+
+	@Override
+	public <T> T[] toArray(T[] a) {
+		return snapshot().toArray(a);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		return o == this || snapshot().equals(o);
+	}
+
+	@Override
+	public int hashCode() {
+		return snapshot().hashCode();
+	}
+
+	/**
+	 * An enqueued modification.
+	 */
+	private static final class Operation {
+
+		final byte type;
+
+		final Object element;
+
+		Operation(byte type, Object element) {
+			this.type = type;
+			this.element = element;
+		}
+	}
+}
@@ -0,0 +1,698 @@
+/*
+ * Copyright (c) 2012-2018 Codestorming.org
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Codestorming - initial API and implementation
+ */
+package org.codestorming.collection;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.function.Consumer;
+
+/**
+ * A {@code BigOrderedSet} is a {@link java.util.Set Set} keeping the insertion order of its elements, able to contain
+ * more than {@link Integer#MAX_VALUE} elements (up to {@link #MAX_SIZE}).
+ * <p>
+ * The elements are stored in fixed-size chunks and accessed with {@code long} indexes ({@link #get(long)}, {@link
+ * #indexOf(Object)}, {@link #sizeAsLong()}). The hash index is an open-addressing table, also split in fixed-size
+ * chunks, so that no single array grows with the size of the set.
+ * <p>
+ * Elements can only be appended. Removing an element is supported but costs a time proportional to the size of the
+ * set, since the indexes of the following elements must be updated.
+ * <p>
+ * While the size of the set fits in an {@code int}, the set can be manipulated as an {@link OrderedSet} through the
+ * view returned by {@link #asOrderedSet()}.
+ * <p>
+ * Growing the set only appends chunks of elements. In <em>incremental resize</em> mode (see {@link
+ * #BigOrderedSet(long, boolean)}), the hash index does not rehash all its entries at once when it grows either: the
+ * entries of the previous table are migrated a few slots at a time by the following additions, while the lookups check
+ * both tables. No single addition pays for a full resize.
+ *
+ * @author Thaedrik [thaedrik@codestorming.org]
+ * @see OrderedHashSet
+ */
+public class BigOrderedSet<E> extends AbstractSet<E> implements Serializable {
+
+	private static final long serialVersionUID = -2786263410416815349L;
+
+	/**
+	 * Maximum number of elements of a {@code BigOrderedSet}.
+	 */
+	public static final long MAX_SIZE = 3L << 30;
+
+	/**
+	 * Number of bits used to address an element inside a chunk.
+	 */
+	private static final int CHUNK_SHIFT = 14;
+
+	/**
+	 * Number of elements (or hash index slots) of a full chunk.
+	 */
+	private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+
+	private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+	/**
+	 * Initial length of the first chunk of elements, which grows until it reaches {@link #CHUNK_SIZE}.
+	 */
+	private static final int INITIAL_CHUNK_SIZE = 16;
+
+	/**
+	 * Minimum number of slots of the hash index.
+	 */
+	private static final long MIN_CAPACITY = 16;
+
+	/**
+	 * Maximum number of slots of the hash index (one slot stores a 32 bits hash and a 32 bits element index).
+	 */
+	private static final long MAX_CAPACITY = 1L << 32;
+
+	/**
+	 * Load factor of the hash index.
+	 */
+	private static final float LOAD_FACTOR = 0.75f;
+
+	private static final long INDEX_MASK = 0xFFFFFFFFL;
+
+	/**
+	 * Number of slots of the previous hash index migrated by each addition during an incremental resize.
+	 * <p>
+	 * A resize starts when the new table is filled at half its load factor, so it is completed before the new table
+	 * must grow as long as this step is greater than {@code 1 / LOAD_FACTOR}.
+	 */
+	private static final int MIGRATION_STEP = 8;
+
+	/**
+	 * Indicates if the hash index is resized incrementally.
+	 */
+	private final boolean incrementalResize;
+
+	/**
+	 * Chunks of elements.
+	 */
+	private transient Object[][] chunks;
+
+	/**
+	 * Hash index chunks. A slot contains the hash of an element on its high 32 bits and its index plus one on its low
+	 * 32 bits, or {@code 0} for an empty slot.
+	 */
+	private transient long[][] table;
+
+	/**
+	 * Number of slots of the hash index minus one.
+	 */
+	private transient long mask;
+
+	/**
+	 * Previous hash index, being migrated into {@link #table} during an incremental resize ({@code null} otherwise).
+	 * Its entries are left in place once migrated.
+	 */
+	private transient long[][] oldTable;
+
+	/**
+	 * Number of slots of {@link #oldTable} minus one.
+	 */
+	private transient long oldMask;
+
+	/**
+	 * Next slot of {@link #oldTable} to migrate.
+	 */
+	private transient long migrated;
+
+	/**
+	 * Size from which the hash index must grow.
+	 */
+	private transient long threshold;
+
+	private transient long size;
+
+	/**
+	 * Creates a new {@code BigOrderedSet}.
+	 */
+	public BigOrderedSet() {
+		this(0);
+	}
+
+	/**
+	 * Creates a new {@code BigOrderedSet} able to contain the given number of elements without resizing its hash index.
+	 *
+	 * @param expectedSize The expected number of elements.
+	 * @throws IllegalArgumentException if {@code expectedSize < 0} or {@code expectedSize > MAX_SIZE}.
+	 */
+	public BigOrderedSet(long expectedSize) {
+		this(expectedSize, false);
+	}
+
+	/**
+	 * Creates a new {@code BigOrderedSet} able to contain the given number of elements without resizing its hash index.
+	 *
+	 * @param expectedSize The expected number of elements.
+	 * @param incrementalResize {@code true} if the hash index must be resized incrementally, spreading the cost of a
+	 * resize over the following additions.
+	 * @throws IllegalArgumentException if {@code expectedSize < 0} or {@code expectedSize > MAX_SIZE}.
+	 */
+	public BigOrderedSet(long expectedSize, boolean incrementalResize) {
+		if (expectedSize < 0 || expectedSize > MAX_SIZE) {
+			throw new IllegalArgumentException("Illegal expected size: " + expectedSize);
+		}// else
+		this.incrementalResize = incrementalResize;
+		init(expectedSize);
+	}
+
+	/**
+	 * Creates a new {@code BigOrderedSet}.
+	 *
+	 * @param c The collection used for initializing this {@code BigOrderedSet}.
+	 */
+	public BigOrderedSet(Collection<? extends E> c) {
+		this(c.size());
+		addAll(c);
+	}
+
+	private void init(long expectedSize) {
+		final long minCapacity = Math.max((long) (expectedSize / LOAD_FACTOR) + 1, MIN_CAPACITY);
+		final long capacity = Long.highestOneBit(minCapacity - 1) << 1;
+		allocateTable(Math.min(capacity, MAX_CAPACITY));
+		oldTable = null;
+		chunks = new Object[1][INITIAL_CHUNK_SIZE];
+		size = 0;
+	}
+
+	/**
+	 * Allocates a new hash index. Its chunks are allocated on their first write.
+	 */
+	private void allocateTable(long capacity) {
+		table = new long[(int) Math.max(1, capacity >>> CHUNK_SHIFT)][];
+		mask = capacity - 1;
+		threshold = (long) (capacity * LOAD_FACTOR);
+	}
+
+	/**
+	 * Returns the number of elements in this set.
+	 *
+	 * @return the number of elements in this set.
+	 */
+	public long sizeAsLong() {
+		return size;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Returns {@link Integer#MAX_VALUE} if this set contains more than {@code Integer.MAX_VALUE} elements.
+	 *
+	 * @see #sizeAsLong()
+	 */
+	@Override
+	public int size() {
+		return (int) Math.min(size, Integer.MAX_VALUE);
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Returns the element at the specified position in this set.
+	 *
+	 * @param index index of the element to return.
+	 * @return the element at the specified position in this set.
+	 * @throws IndexOutOfBoundsException if the index is out of range ({@code index < 0 || index >= sizeAsLong()}).
+	 */
+	@SuppressWarnings("unchecked")
+	public E get(long index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index = " + index);
+		}// else
+		return (E) elementAt(index);
+	}
+
+	/**
+	 * Returns the index of the given element in this set, or {@code -1} if this set does not contain it.
+	 *
+	 * @param o element to search for.
+	 * @return the index of the given element in this set, or {@code -1} if this set does not contain it.
+	 */
+	public long indexOf(Object o) {
+		final int hash = hash(o);
+		long index = find(table, mask, o, hash);
+		if (index < 0 && oldTable != null) {
+			index = find(oldTable, oldMask, o, hash);
+		}
+		return index;
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		return indexOf(o) >= 0;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The element is appended at the end of this set.
+	 *
+	 * @throws IllegalStateException if this set already contains {@link #MAX_SIZE} elements.
+	 */
+	@Override
+	public boolean add(E e) {
+		if (oldTable != null) {
+			migrate(MIGRATION_STEP);
+		}
+		final int hash = hash(e);
+		long slot = hash & mask;
+		for (long entry; (entry = slotAt(table, slot)) != 0; slot = (slot + 1) & mask) {
+			if ((int) (entry >>> 32) == hash && Objects.equals(e, elementAt((entry & INDEX_MASK) - 1))) {
+				return false;
+			}
+		}
+		if (oldTable != null && find(oldTable, oldMask, e, hash) >= 0) {
+			return false;
+		}
+		if (size == MAX_SIZE) {
+			throw new IllegalStateException("The set cannot contain more than " + MAX_SIZE + " elements");
+		}// else
+		appendElement(e);
+		setSlot(slot, ((long) hash << 32) | size);
+		if (size > threshold && mask + 1 < MAX_CAPACITY) {
+			resize();
+		}
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * This operation runs in a time proportional to the size of this set.
+	 */
+	@Override
+	public boolean remove(Object o) {
+		final long index = indexOf(o);
+		if (index < 0) {
+			return false;
+		}// else
+		removeAt(index);
+		return true;
+	}
+
+	@Override
+	public void clear() {
+		init(0);
+	}
+
+	@Override
+	public Iterator<E> iterator() {
+		return new Iterator<E>() {
+			private long next;
+
+			private long lastReturned = -1;
+
+			@Override
+			public boolean hasNext() {
+				return next < size;
+			}
+
+			@Override
+			@SuppressWarnings("unchecked")
+			public E next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}// else
+				lastReturned = next++;
+				return (E) elementAt(lastReturned);
+			}
+
+			@Override
+			public void remove() {
+				if (lastReturned < 0) {
+					throw new IllegalStateException();
+				}// else
+				removeAt(lastReturned);
+				next = lastReturned;
+				lastReturned = -1;
+			}
+		};
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public void forEach(Consumer<? super E> action) {
+		Objects.requireNonNull(action);
+		long remaining = size;
+		for (int c = 0; remaining > 0; c++) {
+			final Object[] chunk = chunks[c];
+			final int length = (int) Math.min(chunk.length, remaining);
+			for (int i = 0; i < length; i++) {
+				action.accept((E) chunk[i]);
+			}
+			remaining -= length;
+		}
+	}
+
+	/**
+	 * Returns an {@link OrderedSet} view of this set.
+	 * <p>
+	 * The view supports the addition (at the end) and the removal of elements, which write through to this set. The
+	 * elements of the view cannot be replaced nor reordered: its {@code set}, {@code move}, {@code swap}, {@code
+	 * rotate}, {@code reverse}, {@code moveToFront} and {@code moveToBack} methods throw an {@link
+	 * UnsupportedOperationException}, leaving this set unchanged. The methods of the view throw an {@link
+	 * IllegalStateException} once this set contains more than {@link Integer#MAX_VALUE} elements.
+	 *
+	 * @return an {@link OrderedSet} view of this set.
+	 */
+	public OrderedSet<E> asOrderedSet() {
+		return new OrderedSetView();
+	}
+
+	/*
+	 * ELEMENT CHUNKS
+	 */
+
+	private Object elementAt(long index) {
+		return chunks[(int) (index >>> CHUNK_SHIFT)][(int) (index & CHUNK_MASK)];
+	}
+
+	private void appendElement(Object e) {
+		final int c = (int) (size >>> CHUNK_SHIFT);
+		final int offset = (int) (size & CHUNK_MASK);
+		if (c == chunks.length) {
+			chunks = Arrays.copyOf(chunks, c * 2);
+		}
+		Object[] chunk = chunks[c];
+		if (chunk == null) {
+			chunk = chunks[c] = new Object[CHUNK_SIZE];
+		} else if (offset == chunk.length) {
+			// Only the first chunk may not be full-sized
+			chunk = chunks[c] = Arrays.copyOf(chunk, Math.min(chunk.length * 2, CHUNK_SIZE));
+		}
+		chunk[offset] = e;
+		size++;
+	}
+
+	/**
+	 * Removes the element at the given index, shifting the following elements and updating the hash index.
+	 */
+	private void removeAt(long index) {
+		if (oldTable != null) {
+			migrate(oldMask + 1);
+		}
+		deleteSlot(slotOf(index));
+		// Shifting the elements
+		final long last = size - 1;
+		int c = (int) (index >>> CHUNK_SHIFT);
+		int offset = (int) (index & CHUNK_MASK);
+		final int lastChunk = (int) (last >>> CHUNK_SHIFT);
+		while (c < lastChunk) {
+			final Object[] chunk = chunks[c];
+			System.arraycopy(chunk, offset + 1, chunk, offset, CHUNK_MASK - offset);
+			chunk[CHUNK_MASK] = chunks[c + 1][0];
+			offset = 0;
+			c++;
+		}
+		final Object[] chunk = chunks[c];
+		final int lastOffset = (int) (last & CHUNK_MASK);
+		System.arraycopy(chunk, offset + 1, chunk, offset, lastOffset - offset);
+		chunk[lastOffset] = null;
+		if (lastOffset == 0 && c > 0) {
+			chunks[c] = null;
+		}
+		size--;
+		// Updating the indexes of the following elements
+		final long removedEntryIndex = index + 1;
+		for (long[] tableChunk : table) {
+			for (int i = 0; tableChunk != null && i < tableChunk.length; i++) {
+				final long entry = tableChunk[i];
+				if ((entry & INDEX_MASK) > removedEntryIndex) {
+					tableChunk[i] = entry - 1;
+				}
+			}
+		}
+	}
+
+	/*
+	 * HASH INDEX
+	 */
+
+	/**
+	 * Spreads the bits of the hash code of the given object (MurmurHash3 finalizer).
+	 */
+	private static int hash(Object o) {
+		int h = o == null ? 0 : o.hashCode();
+		h ^= h >>> 16;
+		h *= 0x85EBCA6B;
+		h ^= h >>> 13;
+		h *= 0xC2B2AE35;
+		h ^= h >>> 16;
+		return h;
+	}
+
+	/**
+	 * Returns the index of the given object in the given hash index, or {@code -1}.
+	 */
+	private long find(long[][] hashIndex, long hashMask, Object o, int hash) {
+		for (long slot = hash & hashMask; ; slot = (slot + 1) & hashMask) {
+			final long entry = slotAt(hashIndex, slot);
+			if (entry == 0) {
+				return -1;
+			} else if ((int) (entry >>> 32) == hash) {
+				final long index = (entry & INDEX_MASK) - 1;
+				if (Objects.equals(o, elementAt(index))) {
+					return index;
+				}
+			}
+		}
+	}
+
+	private static long slotAt(long[][] hashIndex, long slot) {
+		final long[] tableChunk = hashIndex[(int) (slot >>> CHUNK_SHIFT)];
+		return tableChunk == null ? 0 : tableChunk[(int) (slot & CHUNK_MASK)];
+	}
+
+	private long slotAt(long slot) {
+		return slotAt(table, slot);
+	}
+
+	private void setSlot(long slot, long entry) {
+		final int c = (int) (slot >>> CHUNK_SHIFT);
+		long[] tableChunk = table[c];
+		if (tableChunk == null) {
+			tableChunk = table[c] = new long[(int) Math.min(mask + 1, CHUNK_SIZE)];
+		}
+		tableChunk[(int) (slot & CHUNK_MASK)] = entry;
+	}
+
+	/**
+	 * Returns the hash index slot of the element at the given index.
+	 */
+	private long slotOf(long index) {
+		final long entryIndex = index + 1;
+		long slot = hash(elementAt(index)) & mask;
+		while ((slotAt(slot) & INDEX_MASK) != entryIndex) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	/**
+	 * Empties the given slot, moving back the following entries of the probe sequence when needed.
+	 */
+	private void deleteSlot(long slot) {
+		long hole = slot;
+		for (long next = (slot + 1) & mask; ; next = (next + 1) & mask) {
+			final long entry = slotAt(next);
+			if (entry == 0) {
+				break;
+			}// else
+			final long home = (entry >>> 32) & mask;
+			if (((next - home) & mask) >= ((next - hole) & mask)) {
+				setSlot(hole, entry);
+				hole = next;
+			}
+		}
+		setSlot(hole, 0);
+	}
+
+	/**
+	 * Doubles the size of the hash index. The entries of the current table are migrated at once, or by the following
+	 * additions in incremental resize mode.
+	 */
+	private void resize() {
+		if (oldTable != null) {
+			migrate(oldMask + 1);
+		}
+		oldTable = table;
+		oldMask = mask;
+		migrated = 0;
+		allocateTable(Math.min((mask + 1) * 2, MAX_CAPACITY));
+		if (!incrementalResize) {
+			migrate(oldMask + 1);
+		}
+	}
+
+	/**
+	 * Migrates at most {@code slotCount} slots of the {@link #oldTable} into the current table.
+	 */
+	private void migrate(long slotCount) {
+		final long end = Math.min(migrated + slotCount, oldMask + 1);
+		for (long slot = migrated; slot < end; slot++) {
+			final long entry = slotAt(oldTable, slot);
+			if (entry != 0) {
+				insertEntry(entry);
+			}
+		}
+		migrated = end;
+		if (end > oldMask) {
+			oldTable = null;
+		}
+	}
+
+	private void insertEntry(long entry) {
+		long slot = (entry >>> 32) & mask;
+		while (slotAt(slot) != 0) {
+			slot = (slot + 1) & mask;
+		}
+		setSlot(slot, entry);
+	}
+
+	/*
+	 * SERIALIZATION
+	 */
+
+	private void writeObject(ObjectOutputStream s) throws IOException {
+		s.defaultWriteObject();
+		s.writeLong(size);
+		for (E e : this) {
+			s.writeObject(e);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private void readObject(ObjectInputStream s) throws IOException, ClassNotFoundException {
+		s.defaultReadObject();
+		final long length = s.readLong();
+		init(length);
+		for (long i = 0; i < length; i++) {
+			add((E) s.readObject());
+		}
+	}
+
+	/**
+	 * {@link OrderedSet} view of a {@code BigOrderedSet} whose size fits in an {@code int}.
+	 */
+	private final class OrderedSetView extends AbstractOrderedSet<E> implements RandomAccess {
+
+		private int checkedSize() {
+			if (size > Integer.MAX_VALUE) {
+				throw new IllegalStateException("The set contains more than " + Integer.MAX_VALUE + " elements");
+			}// else
+			return (int) size;
+		}
+
+		@Override
+		public int size() {
+			return checkedSize();
+		}
+
+		@Override
+		public E get(int index) {
+			checkedSize();
+			return BigOrderedSet.this.get(index);
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			checkedSize();
+			return BigOrderedSet.this.contains(o);
+		}
+
+		@Override
+		public int indexOf(Object o) {
+			checkedSize();
+			return (int) BigOrderedSet.this.indexOf(o);
+		}
+
+		@Override
+		public boolean add(E e) {
+			checkedSize();
+			return BigOrderedSet.this.add(e);
+		}
+
+		@Override
+		public void add(int index, E element) {
+			if (index != checkedSize()) {
+				throw new UnsupportedOperationException("Elements can only be appended");
+			}// else
+			BigOrderedSet.this.add(element);
+		}
+
+		@Override
+		public boolean remove(Object o) {
+			checkedSize();
+			return BigOrderedSet.this.remove(o);
+		}
+
+		@Override
+		public E remove(int index) {
+			final E element = get(index);
+			removeAt(index);
+			modCount++;
+			return element;
+		}
+
+		@Override
+		public void clear() {
+			BigOrderedSet.this.clear();
+		}
+
+		/*
+		 * The default implementations of the reordering methods remove the elements before adding them back at another
+		 * position, which would lose them as the elements can only be appended.
+		 */
+
+		@Override
+		public void move(int from, int to) {
+			throw new UnsupportedOperationException("The elements cannot be reordered");
+		}
+
+		@Override
+		public void swap(int i, int j) {
+			throw new UnsupportedOperationException("The elements cannot be reordered");
+		}
+
+		@Override
+		public void rotate(int distance) {
+			throw new UnsupportedOperationException("The elements cannot be reordered");
+		}
+
+		@Override
+		public void reverse() {
+			throw new UnsupportedOperationException("The elements cannot be reordered");
+		}
+
+		@Override
+		public boolean moveToFront(Object o) {
+			throw new UnsupportedOperationException("The elements cannot be reordered");
+		}
+
+		@Override
+		public boolean moveToBack(Object o) {
+			throw new UnsupportedOperationException("The elements cannot be reordered");
+		}
+	}
+}
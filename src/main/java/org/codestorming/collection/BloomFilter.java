@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2012-2018 Codestorming.org
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Codestorming - initial API and implementation
+ */
+package org.codestorming.collection;
+
+/**
+ * Fixed-memory probabilistic membership filter.
+ * <p>
+ * The filter never reports an added object as absent, but may report an object that was never added as present with a
+ * probability close to the false-positive rate given on creation (as long as the number of added objects does not
+ * exceed the expected size).
+ *
+ * @author Thaedrik [thaedrik@codestorming.org]
+ */
+class BloomFilter {
+
+	private static final double LN2 = Math.log(2);
+
+	/**
+	 * Bit array.
+	 */
+	private final long[] bits;
+
+	/**
+	 * Number of bits of the bit array.
+	 */
+	private final long bitCount;
+
+	/**
+	 * Number of hash functions applied to each object.
+	 */
+	private final int hashCount;
+
+	/**
+	 * Creates a new {@code BloomFilter}.
+	 *
+	 * @param expectedSize Number of distinct objects expected to be put in the filter.
+	 * @param falsePositiveRate Wanted false-positive rate (between 0 and 1 excluded).
+	 * @throws IllegalArgumentException if {@code expectedSize <= 0} or if {@code falsePositiveRate} is not between 0
+	 * and 1 (excluded).
+	 */
+	BloomFilter(int expectedSize, double falsePositiveRate) {
+		if (expectedSize <= 0) {
+			throw new IllegalArgumentException("The expected size must be positive: " + expectedSize);
+		} else if (!(falsePositiveRate > 0.0 && falsePositiveRate < 1.0)) {
+			throw new IllegalArgumentException("The false-positive rate must be between 0 and 1: " + falsePositiveRate);
+		}// else
+		final long optimalBits = (long) Math.ceil(-expectedSize * Math.log(falsePositiveRate) / (LN2 * LN2));
+		final int words = (int) Math.min((optimalBits + 63) >>> 6, Integer.MAX_VALUE - 8);
+		bits = new long[Math.max(words, 1)];
+		bitCount = (long) bits.length << 6;
+		hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedSize * LN2));
+	}
+
+	/**
+	 * Puts the given object in this filter.
+	 *
+	 * @param o The object to put (may be {@code null}).
+	 * @return {@code true} if the object was <em>definitely</em> not in this filter before the call, {@code false} if
+	 * it <em>might</em> have been.
+	 */
+	boolean put(Object o) {
+		final long hash = mix(o == null ? 0 : o.hashCode());
+		final int h1 = (int) hash;
+		final int h2 = (int) (hash >>> 32);
+		boolean changed = false;
+		for (int i = 1; i <= hashCount; i++) {
+			final long bitIndex = ((h1 + (long) i * h2) & Long.MAX_VALUE) % bitCount;
+			final int word = (int) (bitIndex >>> 6);
+			final long mask = 1L << bitIndex;
+			if ((bits[word] & mask) == 0) {
+				bits[word] |= mask;
+				changed = true;
+			}
+		}
+		return changed;
+	}
+
+	/**
+	 * Spreads the bits of the given hash code over a 64 bits value (MurmurHash3 finalizer).
+	 */
+	private static long mix(int hashCode) {
+		long h = hashCode * 0x9E3779B97F4A7C15L;
+		h ^= h >>> 33;
+		h *= 0xFF51AFD7ED558CCDL;
+		h ^= h >>> 33;
+		h *= 0xC4CEB9FE1A85EC53L;
+		h ^= h >>> 33;
+		return h;
+	}
+}
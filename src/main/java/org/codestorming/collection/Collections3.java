@@ -14,11 +14,27 @@ package org.codestorming.collection;
 import java.io.ObjectStreamException;
 import java.io.Serializable;
 import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collector;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Utility class that operates on or returns collections from {@code org.codestorming.utils.collection} package.
@@ -54,6 +70,78 @@ public class Collections3 {
 		return new UnmodifiableOrderedSet<>(orderedSet);
 	}
 
+	/**
+	 * Returns a lazy view of the elements of the given {@link OrderedSet} matching the given predicate, in their order.
+	 * <p>
+	 * The returned view is read-only and reflects the changes of the given set. The predicate is evaluated on access,
+	 * so the positional operations ({@link OrderedSet#get(int) get}, {@link OrderedSet#size() size}, {@link
+	 * OrderedSet#indexOf(Object) indexOf}) cost a scan of the given set.
+	 *
+	 * @param orderedSet the {@link OrderedSet} to filter.
+	 * @param filter the predicate the elements of the view match.
+	 * @return a lazy filtered view of the given {@link OrderedSet}.
+	 */
+	public static <T> OrderedSet<T> filteredView(OrderedSet<T> orderedSet, Predicate<? super T> filter) {
+		return filteredView(orderedSet, filter, false);
+	}
+
+	/**
+	 * Returns a lazy view of the elements of the given {@link OrderedSet} matching the given predicate, in their order.
+	 * <p>
+	 * The returned view is read-only. If {@code memoize} is {@code true}, the positions of the matching elements are
+	 * remembered as they are computed, so that each element of the given set is tested at most once: the view must then
+	 * be discarded when the given set is modified (only the modifications changing its size are detected, they reset
+	 * the memoized positions).
+	 *
+	 * @param orderedSet the {@link OrderedSet} to filter.
+	 * @param filter the predicate the elements of the view match.
+	 * @param memoize {@code true} to remember the positions of the matching elements.
+	 * @return a lazy filtered view of the given {@link OrderedSet}.
+	 */
+	public static <T> OrderedSet<T> filteredView(OrderedSet<T> orderedSet, Predicate<? super T> filter,
+			boolean memoize) {
+		return new FilteredOrderedSet<>(orderedSet, filter, memoize);
+	}
+
+	/**
+	 * Returns a lazy view of the images of the elements of the given {@link OrderedSet} by the given <em>injective</em>
+	 * function, in the order of the elements.
+	 * <p>
+	 * The returned view is read-only and reflects the changes of the given set. The function is applied on access:
+	 * {@link OrderedSet#get(int) get} costs a single application, but {@link OrderedSet#contains(Object) contains} and
+	 * {@link OrderedSet#indexOf(Object) indexOf} apply it to the elements until a match is found.
+	 * <p>
+	 * The function must map distinct elements to distinct values, otherwise the view is not a set.
+	 *
+	 * @param orderedSet the {@link OrderedSet} to transform.
+	 * @param mapper the injective function to apply to the elements.
+	 * @return a lazy transformed view of the given {@link OrderedSet}.
+	 */
+	public static <T, R> OrderedSet<R> mappedView(OrderedSet<T> orderedSet, Function<? super T, ? extends R> mapper) {
+		return mappedView(orderedSet, mapper, false);
+	}
+
+	/**
+	 * Returns a lazy view of the images of the elements of the given {@link OrderedSet} by the given <em>injective</em>
+	 * function, in the order of the elements.
+	 * <p>
+	 * The returned view is read-only. If {@code memoize} is {@code true}, the computed values are remembered, so that
+	 * the function is applied at most once per element, and the first {@link OrderedSet#contains(Object) contains} or
+	 * {@link OrderedSet#indexOf(Object) indexOf} call indexes all the values: the view must then be discarded when the
+	 * given set is modified (only the modifications changing its size are detected, they reset the memoized values).
+	 * <p>
+	 * The function must map distinct elements to distinct values, otherwise the view is not a set.
+	 *
+	 * @param orderedSet the {@link OrderedSet} to transform.
+	 * @param mapper the injective function to apply to the elements.
+	 * @param memoize {@code true} to remember the computed values.
+	 * @return a lazy transformed view of the given {@link OrderedSet}.
+	 */
+	public static <T, R> OrderedSet<R> mappedView(OrderedSet<T> orderedSet, Function<? super T, ? extends R> mapper,
+			boolean memoize) {
+		return new MappedOrderedSet<>(orderedSet, mapper, memoize);
+	}
+
 	/**
 	 * Returns the empty {@link OrderedSet} (immutable). This ordered set is serializable.
 	 *
@@ -65,6 +153,319 @@ public class Collections3 {
 		return (OrderedSet<T>) EMPTY_ORDERED_SET;
 	}
 
+	/**
+	 * Returns a read-only view of the concatenation of the given <em>disjoint</em> {@link OrderedSet}s, without copying
+	 * their elements.
+	 * <p>
+	 * The positions of the sets in the view are computed once, so the given sets must not be added or removed elements
+	 * while the view is in use. The elements of the given sets must be distinct, otherwise the view is not a set.
+	 *
+	 * @param orderedSets the {@link OrderedSet}s to concatenate.
+	 * @return a read-only view of the concatenation of the given {@link OrderedSet}s.
+	 */
+	@SafeVarargs
+	public static <T> OrderedSet<T> concatView(OrderedSet<? extends T>... orderedSets) {
+		final List<OrderedSet<? extends T>> list = new ArrayList<>(orderedSets.length);
+		for (OrderedSet<? extends T> orderedSet : orderedSets) {
+			list.add(Objects.requireNonNull(orderedSet));
+		}
+		return new ConcatOrderedSet<>(list);
+	}
+
+	/**
+	 * Returns a {@link Collector} accumulating the input elements into a new {@link OrderedSet}, in encounter order.
+	 * <p>
+	 * The partial results of a parallel reduction are concatenated without hashing, the elements being hashed once
+	 * when building the final set.
+	 *
+	 * @return a {@link Collector} accumulating the input elements into a new {@link OrderedSet}.
+	 */
+	public static <T> Collector<T, ?, OrderedSet<T>> toOrderedSet() {
+		return toOrderedSet(0);
+	}
+
+	/**
+	 * Returns a {@link Collector} accumulating the input elements into a new {@link OrderedSet}, in encounter order.
+	 * <p>
+	 * The partial results of a parallel reduction are concatenated without hashing, the elements being hashed once
+	 * when building the final set, sized for the given number of distinct elements.
+	 *
+	 * @param expectedSize The expected number of distinct elements ({@code 0} if unknown).
+	 * @return a {@link Collector} accumulating the input elements into a new {@link OrderedSet}.
+	 */
+	public static <T> Collector<T, ?, OrderedSet<T>> toOrderedSet(int expectedSize) {
+		return Collector.<T, ArrayList<T>, OrderedSet<T>>of(ArrayList::new, ArrayList::add, (left, right) -> {
+			left.addAll(right);
+			return left;
+		}, elements -> {
+			final OrderedHashSet<T> set = OrderedHashSet.withExpectedSize(
+					expectedSize > 0 ? expectedSize : elements.size());
+			// Adding the elements one by one, addAll() would grow the set for the duplicates
+			for (T element : elements) {
+				set.add(element);
+			}
+			return set;
+		});
+	}
+
+	/**
+	 * Returns an {@link Iterator} over the distinct elements of the given one, in their first-seen order.
+	 * <p>
+	 * The elements are read lazily from the given iterator, each one being returned as soon as it is seen for the
+	 * first time. The already seen elements are kept in memory.
+	 *
+	 * @param iterator The source {@link Iterator}.
+	 * @return an {@link Iterator} over the distinct elements of the given one, in their first-seen order.
+	 */
+	public static <T> Iterator<T> distinctOrdered(Iterator<? extends T> iterator) {
+		return new DistinctIterator<>(iterator, new HashSet<>()::add);
+	}
+
+	/**
+	 * Returns an <em>approximate</em> {@link Iterator} over the distinct elements of the given one, in their first-seen
+	 * order.
+	 * <p>
+	 * The already seen elements are recorded in a fixed-memory probabilistic filter instead of being kept in memory. As
+	 * a consequence, an element seen for the first time may be wrongly considered as a duplicate and be skipped, with a
+	 * probability close to {@code falsePositiveRate} (as long as the number of distinct elements does not exceed {@code
+	 * expectedSize}). A duplicate element is never returned.
+	 *
+	 * @param iterator The source {@link Iterator}.
+	 * @param expectedSize Expected number of distinct elements.
+	 * @param falsePositiveRate Accepted probability for a distinct element to be skipped (between 0 and 1 excluded).
+	 * @return an <em>approximate</em> {@link Iterator} over the distinct elements of the given one.
+	 * @throws IllegalArgumentException if {@code expectedSize <= 0} or if {@code falsePositiveRate} is not between 0
+	 * and 1 (excluded).
+	 */
+	public static <T> Iterator<T> distinctOrdered(Iterator<? extends T> iterator, int expectedSize,
+			double falsePositiveRate) {
+		return new DistinctIterator<>(iterator, new BloomFilter(expectedSize, falsePositiveRate)::put);
+	}
+
+	/**
+	 * Returns a {@link Stream} of the distinct elements of the given one, in their first-seen order.
+	 * <p>
+	 * Unlike {@link Stream#distinct()}, the elements are emitted as soon as they are seen for the first time, without
+	 * buffering the source stream. The returned stream is sequential.
+	 *
+	 * @param stream The source {@link Stream}.
+	 * @return a {@link Stream} of the distinct elements of the given one, in their first-seen order.
+	 * @see #distinctOrdered(Iterator)
+	 */
+	public static <T> Stream<T> distinctOrdered(Stream<? extends T> stream) {
+		return distinctStream(stream, distinctOrdered(stream.iterator()));
+	}
+
+	/**
+	 * Returns an <em>approximate</em> {@link Stream} of the distinct elements of the given one, in their first-seen
+	 * order.
+	 * <p>
+	 * Unlike {@link Stream#distinct()}, the elements are emitted as soon as they are seen for the first time, without
+	 * buffering the source stream. The returned stream is sequential.
+	 *
+	 * @param stream The source {@link Stream}.
+	 * @param expectedSize Expected number of distinct elements.
+	 * @param falsePositiveRate Accepted probability for a distinct element to be skipped (between 0 and 1 excluded).
+	 * @return an <em>approximate</em> {@link Stream} of the distinct elements of the given one.
+	 * @throws IllegalArgumentException if {@code expectedSize <= 0} or if {@code falsePositiveRate} is not between 0
+	 * and 1 (excluded).
+	 * @see #distinctOrdered(Iterator, int, double)
+	 */
+	public static <T> Stream<T> distinctOrdered(Stream<? extends T> stream, int expectedSize,
+			double falsePositiveRate) {
+		return distinctStream(stream, distinctOrdered(stream.iterator(), expectedSize, falsePositiveRate));
+	}
+
+	private static <T> Stream<T> distinctStream(Stream<?> source, Iterator<T> distinct) {
+		final Spliterator<T> spliterator = Spliterators.spliteratorUnknownSize(distinct,
+				Spliterator.DISTINCT | Spliterator.ORDERED);
+		return StreamSupport.stream(spliterator, false).onClose(source::close);
+	}
+
+	/**
+	 * Returns the union of the two given sets: the elements of {@code a} in their order, followed by the elements of
+	 * {@code b} that are not in {@code a}, in their order.
+	 * <p>
+	 * The elements of the smaller set are probed in the larger one.
+	 *
+	 * @param a The first set.
+	 * @param b The second set.
+	 * @return a new {@link OrderedSet} containing the elements of both sets.
+	 */
+	public static <E> OrderedSet<E> union(OrderedSet<? extends E> a, OrderedSet<? extends E> b) {
+		return union(a, b, false);
+	}
+
+	/**
+	 * Same as {@link #union(OrderedSet, OrderedSet)}, but the elements of the smaller set are probed in parallel in
+	 * the common fork-join pool.
+	 * <p>
+	 * The given sets must not be modified during the call.
+	 *
+	 * @param a The first set.
+	 * @param b The second set.
+	 * @return a new {@link OrderedSet} containing the elements of both sets.
+	 */
+	public static <E> OrderedSet<E> parallelUnion(OrderedSet<? extends E> a, OrderedSet<? extends E> b) {
+		return union(a, b, true);
+	}
+
+	/**
+	 * Returns the intersection of the two given sets.
+	 * <p>
+	 * The smaller set is iterated while the larger one is probed, so the elements are in the order of the smaller set
+	 * (of {@code a} if both sets have the same size).
+	 *
+	 * @param a The first set.
+	 * @param b The second set.
+	 * @return a new {@link OrderedSet} containing the elements contained in both sets.
+	 */
+	public static <E> OrderedSet<E> intersection(OrderedSet<? extends E> a, OrderedSet<? extends E> b) {
+		return intersection(a, b, false);
+	}
+
+	/**
+	 * Same as {@link #intersection(OrderedSet, OrderedSet)}, but the elements of the smaller set are probed in parallel
+	 * in the common fork-join pool.
+	 * <p>
+	 * The given sets must not be modified during the call.
+	 *
+	 * @param a The first set.
+	 * @param b The second set.
+	 * @return a new {@link OrderedSet} containing the elements contained in both sets.
+	 */
+	public static <E> OrderedSet<E> parallelIntersection(OrderedSet<? extends E> a, OrderedSet<? extends E> b) {
+		return intersection(a, b, true);
+	}
+
+	/**
+	 * Returns the elements of {@code a} that are not in {@code b}, in their order.
+	 *
+	 * @param a The first set.
+	 * @param b The set of the elements to exclude.
+	 * @return a new {@link OrderedSet} containing the elements of {@code a} that are not in {@code b}.
+	 */
+	public static <E> OrderedSet<E> difference(OrderedSet<? extends E> a, OrderedSet<?> b) {
+		return difference(a, b, false);
+	}
+
+	/**
+	 * Same as {@link #difference(OrderedSet, OrderedSet)}, but the elements of {@code a} are probed in parallel in the
+	 * common fork-join pool.
+	 * <p>
+	 * The given sets must not be modified during the call.
+	 *
+	 * @param a The first set.
+	 * @param b The set of the elements to exclude.
+	 * @return a new {@link OrderedSet} containing the elements of {@code a} that are not in {@code b}.
+	 */
+	public static <E> OrderedSet<E> parallelDifference(OrderedSet<? extends E> a, OrderedSet<?> b) {
+		return difference(a, b, true);
+	}
+
+	/**
+	 * Returns the elements contained in only one of the given sets: the elements of {@code a} that are not in {@code
+	 * b}, in their order, followed by the elements of {@code b} that are not in {@code a}, in their order.
+	 *
+	 * @param a The first set.
+	 * @param b The second set.
+	 * @return a new {@link OrderedSet} containing the elements contained in only one of the given sets.
+	 */
+	public static <E> OrderedSet<E> symmetricDifference(OrderedSet<? extends E> a, OrderedSet<? extends E> b) {
+		return symmetricDifference(a, b, false);
+	}
+
+	/**
+	 * Same as {@link #symmetricDifference(OrderedSet, OrderedSet)}, but the elements of both sets are probed in
+	 * parallel in the common fork-join pool.
+	 * <p>
+	 * The given sets must not be modified during the call.
+	 *
+	 * @param a The first set.
+	 * @param b The second set.
+	 * @return a new {@link OrderedSet} containing the elements contained in only one of the given sets.
+	 */
+	public static <E> OrderedSet<E> parallelSymmetricDifference(OrderedSet<? extends E> a,
+			OrderedSet<? extends E> b) {
+		return symmetricDifference(a, b, true);
+	}
+
+	private static <E> OrderedSet<E> union(OrderedSet<? extends E> a, OrderedSet<? extends E> b, boolean parallel) {
+		if (b.size() <= a.size()) {
+			final Object[] bElements = b.toArray();
+			final int[] bOnly = select(bElements, a, false, parallel);
+			final OrderedHashSet<E> result = OrderedHashSet.withExpectedSize(a.size() + bOnly.length);
+			result.addAll(a);
+			append(result, bElements, bOnly);
+			return result;
+		}// else
+		// The common elements are only counted to size the result, which rejects the elements of b already added
+		final int common = select(a.toArray(), b, true, parallel).length;
+		final OrderedHashSet<E> result = OrderedHashSet.withExpectedSize(a.size() + b.size() - common);
+		result.addAll(a);
+		for (E e : b) {
+			result.add(e);
+		}
+		return result;
+	}
+
+	private static <E> OrderedSet<E> intersection(OrderedSet<? extends E> a, OrderedSet<? extends E> b,
+			boolean parallel) {
+		final OrderedSet<? extends E> smaller = b.size() < a.size() ? b : a;
+		final OrderedSet<? extends E> larger = smaller == a ? b : a;
+		final Object[] elements = smaller.toArray();
+		final int[] common = select(elements, larger, true, parallel);
+		final OrderedHashSet<E> result = OrderedHashSet.withExpectedSize(common.length);
+		append(result, elements, common);
+		return result;
+	}
+
+	private static <E> OrderedSet<E> difference(OrderedSet<? extends E> a, OrderedSet<?> b, boolean parallel) {
+		final Object[] elements = a.toArray();
+		final int[] aOnly = select(elements, b, false, parallel);
+		final OrderedHashSet<E> result = OrderedHashSet.withExpectedSize(aOnly.length);
+		append(result, elements, aOnly);
+		return result;
+	}
+
+	private static <E> OrderedSet<E> symmetricDifference(OrderedSet<? extends E> a, OrderedSet<? extends E> b,
+			boolean parallel) {
+		final Object[] aElements = a.toArray();
+		final Object[] bElements = b.toArray();
+		final int[] aOnly = select(aElements, b, false, parallel);
+		final int[] bOnly = select(bElements, a, false, parallel);
+		final OrderedHashSet<E> result = OrderedHashSet.withExpectedSize(aOnly.length + bOnly.length);
+		append(result, aElements, aOnly);
+		append(result, bElements, bOnly);
+		return result;
+	}
+
+	/**
+	 * Returns the ascending indexes of the given elements whose presence in the probed set is the given one.
+	 */
+	private static int[] select(Object[] elements, Collection<?> probed, boolean present, boolean parallel) {
+		if (parallel) {
+			return IntStream.range(0, elements.length).parallel()
+					.filter(i -> probed.contains(elements[i]) == present)
+					.toArray();
+		}// else
+		final int[] indexes = new int[elements.length];
+		int count = 0;
+		for (int i = 0; i < elements.length; i++) {
+			if (probed.contains(elements[i]) == present) {
+				indexes[count++] = i;
+			}
+		}
+		return count == indexes.length ? indexes : Arrays.copyOf(indexes, count);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <E> void append(OrderedHashSet<E> set, Object[] elements, int[] indexes) {
+		for (int index : indexes) {
+			set.add((E) elements[index]);
+		}
+	}
+
 	private static class SynchronizedOrderedSet<E> implements OrderedSet<E>, Serializable {
 
 		private static final long serialVersionUID = 1845123657602486228L;
@@ -175,6 +576,30 @@ public class Collections3 {
 			return delegate.retainAll(c);
 		}
 
+		public synchronized void move(int from, int to) {
+			delegate.move(from, to);
+		}
+
+		public synchronized void swap(int i, int j) {
+			delegate.swap(i, j);
+		}
+
+		public synchronized void rotate(int distance) {
+			delegate.rotate(distance);
+		}
+
+		public synchronized void reverse() {
+			delegate.reverse();
+		}
+
+		public synchronized boolean moveToFront(Object o) {
+			return delegate.moveToFront(o);
+		}
+
+		public synchronized boolean moveToBack(Object o) {
+			return delegate.moveToBack(o);
+		}
+
 		public synchronized String toString() {
 			return delegate.toString();
 		}
@@ -337,11 +762,437 @@ public class Collections3 {
 			throw new UnsupportedOperationException();
 		}
 
+		public void move(int from, int to) {
+			throw new UnsupportedOperationException();
+		}
+
+		public void swap(int i, int j) {
+			throw new UnsupportedOperationException();
+		}
+
+		public void rotate(int distance) {
+			throw new UnsupportedOperationException();
+		}
+
+		public void reverse() {
+			throw new UnsupportedOperationException();
+		}
+
+		public boolean moveToFront(Object o) {
+			throw new UnsupportedOperationException();
+		}
+
+		public boolean moveToBack(Object o) {
+			throw new UnsupportedOperationException();
+		}
+
 		public String toString() {
 			return delegate.toString();
 		}
 	}
 
+	private static class FilteredOrderedSet<E> extends AbstractOrderedSet<E> {
+
+		private final OrderedSet<E> orderedSet;
+
+		private final Predicate<? super E> filter;
+
+		private final boolean memoize;
+
+		/**
+		 * Positions in the underlying set of the matching elements found so far (memoization only).
+		 */
+		private int[] positions;
+
+		/**
+		 * Number of valid {@link #positions}.
+		 */
+		private int found;
+
+		/**
+		 * Number of elements of the underlying set already tested.
+		 */
+		private int scanned;
+
+		/**
+		 * Size of the underlying set when the positions were computed.
+		 */
+		private int sourceSize = -1;
+
+		FilteredOrderedSet(OrderedSet<E> orderedSet, Predicate<? super E> filter, boolean memoize) {
+			this.orderedSet = Objects.requireNonNull(orderedSet);
+			this.filter = Objects.requireNonNull(filter);
+			this.memoize = memoize;
+		}
+
+		/**
+		 * Tests the elements of the underlying set until the position of the matching element at the given index is
+		 * known, or until the whole set is scanned.
+		 */
+		private void scanUntil(int index) {
+			final int size = orderedSet.size();
+			if (size != sourceSize) {
+				positions = new int[Math.min(size, 16)];
+				found = scanned = 0;
+				sourceSize = size;
+			}
+			while (found <= index && scanned < size) {
+				if (filter.test(orderedSet.get(scanned))) {
+					if (found == positions.length) {
+						positions = Arrays.copyOf(positions, Math.min(size, found + (found >> 1) + 1));
+					}
+					positions[found++] = scanned;
+				}
+				scanned++;
+			}
+		}
+
+		@Override
+		public E get(int index) {
+			if (index < 0) {
+				throw new IndexOutOfBoundsException("Index: " + index);
+			}// else
+			if (memoize) {
+				scanUntil(index);
+				if (index >= found) {
+					throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + found);
+				}// else
+				return orderedSet.get(positions[index]);
+			}// else
+			int count = 0;
+			for (E e : orderedSet) {
+				if (filter.test(e) && count++ == index) {
+					return e;
+				}
+			}
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + count);
+		}
+
+		@Override
+		public int size() {
+			if (memoize) {
+				scanUntil(Integer.MAX_VALUE - 1);
+				return found;
+			}// else
+			int count = 0;
+			for (E e : orderedSet) {
+				if (filter.test(e)) {
+					count++;
+				}
+			}
+			return count;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public boolean contains(Object o) {
+			return orderedSet.contains(o) && filter.test((E) o);
+		}
+
+		@Override
+		public int indexOf(Object o) {
+			if (!contains(o)) {
+				return -1;
+			}// else
+			final int position = orderedSet.indexOf(o);
+			if (memoize) {
+				while (scanned <= position && found < Integer.MAX_VALUE) {
+					scanUntil(found);
+				}
+				return Arrays.binarySearch(positions, 0, found, position);
+			}// else
+			int index = 0;
+			for (int i = 0; i < position; i++) {
+				if (filter.test(orderedSet.get(i))) {
+					index++;
+				}
+			}
+			return index;
+		}
+
+		@Override
+		public Iterator<E> iterator() {
+			return new Iterator<E>() {
+				private final Iterator<E> iterator = orderedSet.iterator();
+
+				private E next;
+
+				private boolean hasNext;
+
+				@Override
+				public boolean hasNext() {
+					while (!hasNext && iterator.hasNext()) {
+						final E e = iterator.next();
+						if (filter.test(e)) {
+							next = e;
+							hasNext = true;
+						}
+					}
+					return hasNext;
+				}
+
+				@Override
+				public E next() {
+					if (!hasNext()) {
+						throw new NoSuchElementException();
+					}// else
+					final E e = next;
+					next = null;
+					hasNext = false;
+					return e;
+				}
+			};
+		}
+
+		@Override
+		public Spliterator<E> spliterator() {
+			return Spliterators.spliteratorUnknownSize(iterator(), Spliterator.DISTINCT | Spliterator.ORDERED);
+		}
+	}
+
+	private static class MappedOrderedSet<E, R> extends AbstractOrderedSet<R> implements RandomAccess {
+
+		/**
+		 * Marks the values not computed yet (memoization only).
+		 */
+		private static final Object UNKNOWN = new Object();
+
+		private final OrderedSet<E> orderedSet;
+
+		private final Function<? super E, ? extends R> mapper;
+
+		private final boolean memoize;
+
+		/**
+		 * The values computed so far (memoization only).
+		 */
+		private Object[] values;
+
+		/**
+		 * Indexes of the values, built on the first lookup (memoization only).
+		 */
+		private Map<Object, Integer> indexes;
+
+		MappedOrderedSet(OrderedSet<E> orderedSet, Function<? super E, ? extends R> mapper, boolean memoize) {
+			this.orderedSet = Objects.requireNonNull(orderedSet);
+			this.mapper = Objects.requireNonNull(mapper);
+			this.memoize = memoize;
+		}
+
+		/**
+		 * Returns the memoized values, reset if the size of the underlying set changed.
+		 */
+		private Object[] values() {
+			final int size = orderedSet.size();
+			if (values == null || values.length != size) {
+				values = new Object[size];
+				Arrays.fill(values, UNKNOWN);
+				indexes = null;
+			}
+			return values;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public R get(int index) {
+			if (!memoize) {
+				return mapper.apply(orderedSet.get(index));
+			}// else
+			final Object[] values = values();
+			if (index < 0 || index >= values.length) {
+				throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + values.length);
+			}// else
+			Object value = values[index];
+			if (value == UNKNOWN) {
+				value = values[index] = mapper.apply(orderedSet.get(index));
+			}
+			return (R) value;
+		}
+
+		@Override
+		public int size() {
+			return orderedSet.size();
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			return indexOf(o) >= 0;
+		}
+
+		@Override
+		public int indexOf(Object o) {
+			if (!memoize) {
+				int index = 0;
+				for (E e : orderedSet) {
+					if (Objects.equals(o, mapper.apply(e))) {
+						return index;
+					}// else
+					index++;
+				}
+				return -1;
+			}// else
+			final Object[] values = values();
+			if (indexes == null) {
+				final Map<Object, Integer> indexes = new HashMap<>((int) (values.length / 0.75f) + 1);
+				for (int i = 0; i < values.length; i++) {
+					indexes.put(get(i), i);
+				}
+				this.indexes = indexes;
+			}
+			final Integer index = indexes.get(o);
+			return index == null ? -1 : index;
+		}
+
+		@Override
+		public Iterator<R> iterator() {
+			if (memoize) {
+				return super.iterator();
+			}// else
+			final Iterator<E> iterator = orderedSet.iterator();
+			return new Iterator<R>() {
+				@Override
+				public boolean hasNext() {
+					return iterator.hasNext();
+				}
+
+				@Override
+				public R next() {
+					return mapper.apply(iterator.next());
+				}
+			};
+		}
+	}
+
+	private static class ConcatOrderedSet<E> extends AbstractOrderedSet<E> implements RandomAccess {
+
+		private final List<OrderedSet<? extends E>> orderedSets;
+
+		/**
+		 * Position in this view of the first element of each set, followed by the size of this view.
+		 */
+		private final int[] offsets;
+
+		ConcatOrderedSet(List<OrderedSet<? extends E>> orderedSets) {
+			this.orderedSets = orderedSets;
+			offsets = new int[orderedSets.size() + 1];
+			for (int i = 0; i < orderedSets.size(); i++) {
+				offsets[i + 1] = Math.addExact(offsets[i], orderedSets.get(i).size());
+			}
+		}
+
+		@Override
+		public E get(int index) {
+			if (index < 0 || index >= size()) {
+				throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+			}// else
+			// Searching the last set starting at or before the index (the empty sets share their offset)
+			int low = 0;
+			int high = orderedSets.size() - 1;
+			while (low < high) {
+				final int mid = (low + high + 1) >>> 1;
+				if (offsets[mid] <= index) {
+					low = mid;
+				} else {
+					high = mid - 1;
+				}
+			}
+			return orderedSets.get(low).get(index - offsets[low]);
+		}
+
+		@Override
+		public int size() {
+			return offsets[orderedSets.size()];
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			for (OrderedSet<? extends E> orderedSet : orderedSets) {
+				if (orderedSet.contains(o)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public int indexOf(Object o) {
+			for (int i = 0; i < orderedSets.size(); i++) {
+				// Checking the presence first, the hash lookup being cheaper than the search of the index
+				if (orderedSets.get(i).contains(o)) {
+					return offsets[i] + orderedSets.get(i).indexOf(o);
+				}
+			}
+			return -1;
+		}
+
+		@Override
+		public Iterator<E> iterator() {
+			return new Iterator<E>() {
+				private int current;
+
+				private Iterator<? extends E> iterator = Collections.emptyIterator();
+
+				@Override
+				public boolean hasNext() {
+					while (!iterator.hasNext() && current < orderedSets.size()) {
+						iterator = orderedSets.get(current++).iterator();
+					}
+					return iterator.hasNext();
+				}
+
+				@Override
+				public E next() {
+					if (!hasNext()) {
+						throw new NoSuchElementException();
+					}// else
+					return iterator.next();
+				}
+			};
+		}
+	}
+
+	private static class DistinctIterator<E> implements Iterator<E> {
+
+		private final Iterator<? extends E> source;
+
+		/**
+		 * Returns {@code true} if the tested element is seen for the first time.
+		 */
+		private final Predicate<Object> firstSeen;
+
+		private E next;
+
+		private boolean hasNext;
+
+		DistinctIterator(Iterator<? extends E> source, Predicate<Object> firstSeen) {
+			this.source = source;
+			this.firstSeen = firstSeen;
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (!hasNext && source.hasNext()) {
+				final E candidate = source.next();
+				if (firstSeen.test(candidate)) {
+					next = candidate;
+					hasNext = true;
+				}
+			}
+			return hasNext;
+		}
+
+		@Override
+		public E next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}// else
+			final E element = next;
+			next = null;
+			hasNext = false;
+			return element;
+		}
+	}
+
 	private static class EmptyOrderedSet implements OrderedSet<Object>, Serializable {
 
 		private static final long serialVersionUID = 564365190269344842L;
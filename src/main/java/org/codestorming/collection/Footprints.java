@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2012-2018 Codestorming.org
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Codestorming - initial API and implementation
+ */
+package org.codestorming.collection;
+
+/**
+ * Utility class estimating the heap memory used by objects and by the JDK collections.
+ * <p>
+ * The estimates assume the layout of a 64-bit HotSpot JVM with compressed references (the default for heaps under 32
+ * GB): 12 bytes object headers, 16 bytes array headers, 4 bytes references and objects aligned on 8 bytes.
+ * <p>
+ * The capacity of the JDK hash tables is not observable: it is estimated as the smallest table holding the current
+ * number of mappings, hence a table that grew before removals is underestimated.
+ *
+ * @author Thaedrik [thaedrik@codestorming.org]
+ * @see MemoryFootprint
+ */
+public class Footprints {
+
+	/**
+	 * Size of an object header.
+	 */
+	public static final int OBJECT_HEADER = 12;
+
+	/**
+	 * Size of an array header (including the length).
+	 */
+	public static final int ARRAY_HEADER = 16;
+
+	/**
+	 * Size of a reference.
+	 */
+	public static final int REFERENCE = 4;
+
+	/**
+	 * Alignment of the objects.
+	 */
+	public static final int ALIGNMENT = 8;
+
+	private static final int HASH_MAP_MIN_CAPACITY = 16;
+
+	private static final float HASH_MAP_LOAD_FACTOR = 0.75f;
+
+	/**
+	 * Size of a {@code HashMap} node (hash, key, value and next).
+	 */
+	private static final long HASH_MAP_NODE = objectBytes(3, 4);
+
+	/**
+	 * Size of a {@code HashMap} (table, entry set, key set and values references, size, modification count, threshold
+	 * and load factor).
+	 */
+	private static final long HASH_MAP = objectBytes(4, 16);
+
+	/**
+	 * Size of a {@code LinkedHashMap} node ({@code HashMap} node with the before and after links).
+	 */
+	private static final long LINKED_HASH_MAP_NODE = objectBytes(5, 4);
+
+	/**
+	 * Size of a {@code LinkedHashMap} ({@code HashMap} with the head and tail references and the access order).
+	 */
+	private static final long LINKED_HASH_MAP = objectBytes(6, 17);
+
+	private Footprints() {
+		// Utility class
+	}
+
+	/**
+	 * Returns the given size rounded up to the object alignment.
+	 *
+	 * @param bytes A size in bytes.
+	 * @return the aligned size.
+	 */
+	public static long align(long bytes) {
+		return (bytes + ALIGNMENT - 1) & -ALIGNMENT;
+	}
+
+	/**
+	 * Returns the size of an object with the given fields.
+	 *
+	 * @param references Number of reference fields.
+	 * @param primitiveBytes Number of bytes of the primitive fields.
+	 * @return the size of the object.
+	 */
+	public static long objectBytes(int references, int primitiveBytes) {
+		return align(OBJECT_HEADER + (long) references * REFERENCE + primitiveBytes);
+	}
+
+	/**
+	 * Returns the size of an array of references.
+	 *
+	 * @param length Length of the array.
+	 * @return the size of the array.
+	 */
+	public static long referenceArrayBytes(long length) {
+		return align(ARRAY_HEADER + length * REFERENCE);
+	}
+
+	/**
+	 * Returns the size of an array of primitives.
+	 *
+	 * @param length Length of the array.
+	 * @param elementBytes Size of a primitive element.
+	 * @return the size of the array.
+	 */
+	public static long primitiveArrayBytes(long length, int elementBytes) {
+		return align(ARRAY_HEADER + length * elementBytes);
+	}
+
+	/**
+	 * Returns the estimated length of the table of a {@code HashMap} containing the given number of mappings.
+	 *
+	 * @param size Number of mappings.
+	 * @return the estimated length of the table.
+	 */
+	public static int hashTableLength(int size) {
+		final int minLength = (int) Math.min((long) Math.ceil(size / HASH_MAP_LOAD_FACTOR), 1 << 30);
+		return Math.max(HASH_MAP_MIN_CAPACITY, Integer.highestOneBit(Math.max(minLength - 1, 1)) << 1);
+	}
+
+	/**
+	 * Returns the estimated retained size of a {@code HashMap} containing the given number of mappings.
+	 *
+	 * @param size Number of mappings.
+	 * @return the estimated retained size of the map.
+	 */
+	public static long hashMapBytes(int size) {
+		return HASH_MAP + hashMapStorageBytes(size);
+	}
+
+	/**
+	 * Returns the estimated retained size of a {@code HashMap} containing the given number of mappings, whose table has
+	 * the given length.
+	 *
+	 * @param size Number of mappings.
+	 * @param tableLength Length of the table.
+	 * @return the estimated retained size of the map.
+	 */
+	public static long hashMapBytes(int size, int tableLength) {
+		return HASH_MAP + hashMapStorageBytes(size, tableLength);
+	}
+
+	/**
+	 * Returns the estimated size of the table and nodes of a {@code HashMap} containing the given number of mappings.
+	 *
+	 * @param size Number of mappings.
+	 * @return the estimated size of the table and nodes of the map.
+	 */
+	public static long hashMapStorageBytes(int size) {
+		return hashMapStorageBytes(size, hashTableLength(size));
+	}
+
+	/**
+	 * Returns the estimated size of the table and nodes of a {@code HashMap} containing the given number of mappings,
+	 * whose table has the given length.
+	 *
+	 * @param size Number of mappings.
+	 * @param tableLength Length of the table.
+	 * @return the estimated size of the table and nodes of the map.
+	 */
+	public static long hashMapStorageBytes(int size, int tableLength) {
+		return referenceArrayBytes(tableLength) + size * HASH_MAP_NODE;
+	}
+
+	/**
+	 * Returns the estimated retained size of a {@code LinkedHashMap} containing the given number of mappings.
+	 *
+	 * @param size Number of mappings.
+	 * @return the estimated retained size of the map.
+	 */
+	public static long linkedHashMapBytes(int size) {
+		return LINKED_HASH_MAP + referenceArrayBytes(hashTableLength(size)) + size * LINKED_HASH_MAP_NODE;
+	}
+
+	/**
+	 * Returns the estimated retained size of a {@code HashSet} containing the given number of elements.
+	 *
+	 * @param size Number of elements.
+	 * @return the estimated retained size of the set.
+	 */
+	public static long hashSetBytes(int size) {
+		return objectBytes(1, 0) + hashMapBytes(size);
+	}
+
+	/**
+	 * Returns the estimated retained size of an {@code ArrayList} containing the given number of elements, without
+	 * spare capacity.
+	 *
+	 * @param size Number of elements.
+	 * @return the estimated retained size of the list.
+	 */
+	public static long arrayListBytes(int size) {
+		return objectBytes(1, 8) + referenceArrayBytes(size);
+	}
+}
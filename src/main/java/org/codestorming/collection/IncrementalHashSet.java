@@ -0,0 +1,313 @@
+/*
+ * Copyright (c) 2012-2018 Codestorming.org
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Codestorming - initial API and implementation
+ */
+package org.codestorming.collection;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * Hash set resized incrementally, used as the hash index of an {@link OrderedHashSet} in incremental resize mode.
+ * <p>
+ * When the table grows, the entries of the previous table are not rehashed at once: the following additions and
+ * removals migrate a few buckets of the previous table each, while the lookups check both tables. No single operation
+ * pays for a full rehash.
+ * <p>
+ * The iterators do not support the removal of elements, nor the modification of the set during the iteration.
+ *
+ * @author Thaedrik [thaedrik@codestorming.org]
+ * @see OrderedHashSet#OrderedHashSet(int, boolean)
+ */
+final class IncrementalHashSet<E> extends AbstractSet<E> {
+
+	private static final int MIN_CAPACITY = 16;
+
+	private static final int MAX_CAPACITY = 1 << 30;
+
+	/**
+	 * Number of buckets of the previous table migrated by each addition or removal during a resize.
+	 * <p>
+	 * A resize starts when the new table is filled at half the load factor, so it is completed before the new table
+	 * must grow as long as this step is greater than {@code 1 / loadFactor}.
+	 */
+	private static final int MIGRATION_STEP = 8;
+
+	private final float loadFactor;
+
+	private Node<E>[] table;
+
+	/**
+	 * Previous table, being migrated into {@link #table} during a resize ({@code null} otherwise). Its buckets are
+	 * emptied as they are migrated.
+	 */
+	private Node<E>[] oldTable;
+
+	/**
+	 * Next bucket of {@link #oldTable} to migrate.
+	 */
+	private int migrated;
+
+	private int size;
+
+	/**
+	 * Size above which the table grows.
+	 */
+	private int threshold;
+
+	/**
+	 * Creates a new {@code IncrementalHashSet}.
+	 *
+	 * @param expectedSize The number of elements the set can contain without resizing.
+	 * @param loadFactor The load factor of the table.
+	 */
+	IncrementalHashSet(int expectedSize, float loadFactor) {
+		if (expectedSize < 0) {
+			throw new IllegalArgumentException("Illegal capacity: " + expectedSize);
+		}// else
+		this.loadFactor = loadFactor;
+		allocateTable(tableLength(expectedSize, loadFactor));
+	}
+
+	/**
+	 * Returns the length of a table able to contain the given number of elements without resizing.
+	 */
+	private static int tableLength(int expectedSize, float loadFactor) {
+		final long minLength = (long) (expectedSize / loadFactor) + 1;
+		if (minLength >= MAX_CAPACITY) {
+			return MAX_CAPACITY;
+		}// else
+		return Math.max(MIN_CAPACITY, Integer.highestOneBit((int) minLength - 1) << 1);
+	}
+
+	@SuppressWarnings("unchecked")
+	private void allocateTable(int length) {
+		table = (Node<E>[]) new Node<?>[length];
+		threshold = length == MAX_CAPACITY ? Integer.MAX_VALUE : (int) (length * loadFactor);
+	}
+
+	private static int hash(Object o) {
+		final int h = o == null ? 0 : o.hashCode();
+		return h ^ (h >>> 16);
+	}
+
+	private static <E> Node<E> find(Node<E>[] table, Object o, int hash) {
+		for (Node<E> node = table[hash & (table.length - 1)]; node != null; node = node.next) {
+			if (node.hash == hash && Objects.equals(o, node.key)) {
+				return node;
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		final int hash = hash(o);
+		return find(table, o, hash) != null || oldTable != null && find(oldTable, o, hash) != null;
+	}
+
+	@Override
+	public boolean add(E e) {
+		if (oldTable != null) {
+			migrate(MIGRATION_STEP);
+		}
+		final int hash = hash(e);
+		if (find(table, e, hash) != null || oldTable != null && find(oldTable, e, hash) != null) {
+			return false;
+		}// else
+		final int index = hash & (table.length - 1);
+		table[index] = new Node<>(hash, e, table[index]);
+		if (++size > threshold) {
+			resize();
+		}
+		return true;
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		if (oldTable != null) {
+			migrate(MIGRATION_STEP);
+		}
+		final int hash = hash(o);
+		if (unlink(table, o, hash) || oldTable != null && unlink(oldTable, o, hash)) {
+			size--;
+			return true;
+		}// else
+		return false;
+	}
+
+	/**
+	 * Removes the node of the given object from the given table.
+	 *
+	 * @return {@code true} if the object was found.
+	 */
+	private static <E> boolean unlink(Node<E>[] table, Object o, int hash) {
+		final int index = hash & (table.length - 1);
+		Node<E> previous = null;
+		for (Node<E> node = table[index]; node != null; previous = node, node = node.next) {
+			if (node.hash == hash && Objects.equals(o, node.key)) {
+				if (previous == null) {
+					table[index] = node.next;
+				} else {
+					previous.next = node.next;
+				}
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Doubles the length of the table, its entries being migrated by the following operations.
+	 */
+	private void resize() {
+		if (oldTable != null) {
+			migrate(oldTable.length);
+		}
+		if (table.length == MAX_CAPACITY) {
+			threshold = Integer.MAX_VALUE;
+			return;
+		}// else
+		oldTable = table;
+		migrated = 0;
+		allocateTable(oldTable.length << 1);
+	}
+
+	/**
+	 * Migrates the given number of buckets of the previous table into the current one.
+	 */
+	private void migrate(int buckets) {
+		final Node<E>[] old = oldTable;
+		final Node<E>[] tab = table;
+		final int mask = tab.length - 1;
+		final int end = Math.min(old.length, migrated + buckets);
+		for (int i = migrated; i < end; i++) {
+			Node<E> node = old[i];
+			while (node != null) {
+				final Node<E> next = node.next;
+				final int index = node.hash & mask;
+				node.next = tab[index];
+				tab[index] = node;
+				node = next;
+			}
+			old[i] = null;
+		}
+		migrated = end;
+		if (end == old.length) {
+			oldTable = null;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The table is replaced by a table of the minimum length, instead of being cleared.
+	 */
+	@Override
+	public void clear() {
+		oldTable = null;
+		size = 0;
+		allocateTable(MIN_CAPACITY);
+	}
+
+	/**
+	 * Returns a copy of this set, with a table sized for its current elements.
+	 */
+	IncrementalHashSet<E> copy() {
+		final IncrementalHashSet<E> copy = new IncrementalHashSet<>(size, loadFactor);
+		for (E e : this) {
+			copy.add(e);
+		}
+		return copy;
+	}
+
+	/**
+	 * Returns the estimated size of this set, its tables and its nodes.
+	 */
+	long retainedBytes() {
+		return Footprints.objectBytes(3, 16) + Footprints.referenceArrayBytes(table.length)
+				+ (oldTable == null ? 0 : Footprints.referenceArrayBytes(oldTable.length))
+				+ size * Footprints.objectBytes(2, 4);
+	}
+
+	@Override
+	public Iterator<E> iterator() {
+		return new Iterator<E>() {
+
+			private Node<E>[] tab = table;
+
+			private int index;
+
+			private Node<E> next = advance(null);
+
+			/**
+			 * Returns the node following the given one, in the current table then in the previous one.
+			 */
+			private Node<E> advance(Node<E> node) {
+				if (node != null && node.next != null) {
+					return node.next;
+				}// else
+				while (true) {
+					while (index < tab.length) {
+						final Node<E> first = tab[index++];
+						if (first != null) {
+							return first;
+						}
+					}
+					if (tab == oldTable || oldTable == null) {
+						return null;
+					}// else
+					tab = oldTable;
+					index = migrated;
+				}
+			}
+
+			@Override
+			public boolean hasNext() {
+				return next != null;
+			}
+
+			@Override
+			public E next() {
+				final Node<E> node = next;
+				if (node == null) {
+					throw new NoSuchElementException();
+				}// else
+				next = advance(node);
+				return node.key;
+			}
+		};
+	}
+
+	/**
+	 * Entry of a bucket chain.
+	 */
+	private static final class Node<E> {
+
+		final int hash;
+
+		final E key;
+
+		Node<E> next;
+
+		Node(int hash, E key, Node<E> next) {
+			this.hash = hash;
+			this.key = key;
+			this.next = next;
+		}
+	}
+}
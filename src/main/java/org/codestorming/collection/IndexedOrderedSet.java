@@ -0,0 +1,637 @@
+/*
+ * Copyright (c) 2012-2018 Codestorming.org
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Codestorming - initial API and implementation
+ */
+package org.codestorming.collection;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * {@link OrderedSet} maintaining secondary indexes on its elements.
+ * <p>
+ * An index associates each element with the key computed by its key extractor. Three kinds of indexes can be
+ * registered:
+ * <ul>
+ * <li>{@link #addUniqueIndex(Function) unique indexes}, allowing at most one element per key, with constant-time
+ * lookups;</li>
+ * <li>{@link #addHashIndex(Function) hash indexes}, allowing several elements per key, with constant-time
+ * lookups;</li>
+ * <li>{@link #addSortedIndex(Function, Comparator) sorted indexes}, allowing several elements per key, with logarithmic
+ * lookups and range queries.</li>
+ * </ul>
+ * The indexes are maintained on every modification of this set. The modifications are transactional: the keys of the
+ * added elements (all the elements of a bulk addition) are computed and checked against the unique indexes before
+ * modifying anything, so a modification either updates this set and all its indexes, or fails with an {@link
+ * IllegalArgumentException} leaving them untouched.
+ * <p>
+ * The keys of an element must not change while the element is contained in this set, as for its hash code.
+ * <p>
+ * <strong>Note that this implementation is not synchronized.</strong>
+ *
+ * @author Thaedrik [thaedrik@codestorming.org]
+ * @see OrderedHashSet
+ */
+public class IndexedOrderedSet<E> extends AbstractOrderedSet<E> implements RandomAccess {
+
+	private final OrderedHashSet<E> set;
+
+	private final List<AbstractIndex<?, E>> indexes = new ArrayList<>();
+
+	/**
+	 * Creates a new empty {@code IndexedOrderedSet}.
+	 */
+	public IndexedOrderedSet() {
+		set = new OrderedHashSet<>();
+	}
+
+	/**
+	 * Creates a new empty {@code IndexedOrderedSet} with the given initial capacity.
+	 *
+	 * @param initialCapacity The initial capacity of the {@code IndexedOrderedSet}.
+	 */
+	public IndexedOrderedSet(int initialCapacity) {
+		set = new OrderedHashSet<>(initialCapacity);
+	}
+
+	/**
+	 * Registers a unique index on the keys computed by the given extractor.
+	 * <p>
+	 * The elements already contained in this set are indexed.
+	 *
+	 * @param keyExtractor The function computing the key of an element.
+	 * @return the new index.
+	 * @throws IllegalArgumentException if two elements of this set have the same key.
+	 */
+	public <K> UniqueIndex<K, E> addUniqueIndex(Function<? super E, ? extends K> keyExtractor) {
+		return register(new HashUniqueIndex<>(keyExtractor));
+	}
+
+	/**
+	 * Registers a non-unique index on the keys computed by the given extractor.
+	 * <p>
+	 * The elements already contained in this set are indexed.
+	 *
+	 * @param keyExtractor The function computing the key of an element.
+	 * @return the new index.
+	 */
+	public <K> Index<K, E> addHashIndex(Function<? super E, ? extends K> keyExtractor) {
+		return register(new MultiIndex<>(keyExtractor, new HashMap<>()));
+	}
+
+	/**
+	 * Registers a non-unique index, sorted on the natural ordering of the keys computed by the given extractor.
+	 * <p>
+	 * The elements already contained in this set are indexed.
+	 *
+	 * @param keyExtractor The function computing the key of an element (never {@code null}).
+	 * @return the new index.
+	 */
+	public <K extends Comparable<? super K>> SortedIndex<K, E> addSortedIndex(
+			Function<? super E, ? extends K> keyExtractor) {
+		return addSortedIndex(keyExtractor, Comparator.naturalOrder());
+	}
+
+	/**
+	 * Registers a non-unique index, sorted with the given comparator on the keys computed by the given extractor.
+	 * <p>
+	 * The elements already contained in this set are indexed.
+	 *
+	 * @param keyExtractor The function computing the key of an element.
+	 * @param comparator The comparator of the keys.
+	 * @return the new index.
+	 */
+	public <K> SortedIndex<K, E> addSortedIndex(Function<? super E, ? extends K> keyExtractor,
+			Comparator<? super K> comparator) {
+		return register(new TreeMultiIndex<>(keyExtractor, comparator));
+	}
+
+	private <I extends AbstractIndex<?, E>> I register(I index) {
+		final Object[] keys = new Object[set.size()];
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = index.prepare(set.get(i), null);
+		}
+		// The unique keys may collide between the elements already contained in the set
+		for (int i = 0; i < keys.length; i++) {
+			try {
+				index.put(keys[i], set.get(i));
+			} catch (IllegalArgumentException e) {
+				index.clear();
+				throw e;
+			}
+		}
+		indexes.add(index);
+		return index;
+	}
+
+	/**
+	 * Computes the keys of the given element for every index, checking the unique constraints.
+	 *
+	 * @param e The element to index.
+	 * @param replaced The element replaced by the given one (ignored by the unique constraints), may be {@code null}.
+	 * @return the keys of the element.
+	 */
+	private Object[] prepare(E e, Object replaced) {
+		final Object[] keys = new Object[indexes.size()];
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = indexes.get(i).prepare(e, replaced);
+		}
+		return keys;
+	}
+
+	private void index(E e, Object[] keys) {
+		for (int i = 0; i < keys.length; i++) {
+			indexes.get(i).put(keys[i], e);
+		}
+	}
+
+	private void unindex(E e) {
+		for (AbstractIndex<?, E> index : indexes) {
+			index.remove(e);
+		}
+	}
+
+	@Override
+	public boolean add(E e) {
+		if (set.contains(e)) {
+			return false;
+		}// else
+		final Object[] keys = prepare(e, null);
+		set.add(e);
+		index(e, keys);
+		modCount++;
+		return true;
+	}
+
+	@Override
+	public void add(int index, E element) {
+		if (index < 0 || index > size()) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+		} else if (set.contains(element)) {
+			return;
+		}// else
+		final Object[] keys = prepare(element, null);
+		set.add(index, element);
+		index(element, keys);
+		modCount++;
+	}
+
+	@Override
+	public boolean addAll(Collection<? extends E> c) {
+		return addAll(size(), c);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The elements already contained in this set are skipped, the other ones being inserted in their order from the
+	 * given index. The keys of all the inserted elements are checked against the unique indexes, and between
+	 * themselves, before modifying anything.
+	 */
+	@Override
+	public boolean addAll(int index, Collection<? extends E> c) {
+		if (index < 0 || index > size()) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+		}// else
+		final List<E> elements = new ArrayList<>(c.size());
+		final Set<E> distinct = new HashSet<>();
+		for (E e : c) {
+			if (!set.contains(e) && distinct.add(e)) {
+				elements.add(e);
+			}
+		}
+		if (elements.isEmpty()) {
+			return false;
+		}// else
+		final Object[][] keys = new Object[elements.size()][];
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = prepare(elements.get(i), null);
+		}
+		checkUniqueKeys(elements, keys);
+		set.addAll(index, elements);
+		for (int i = 0; i < keys.length; i++) {
+			index(elements.get(i), keys[i]);
+		}
+		modCount++;
+		return true;
+	}
+
+	/**
+	 * Checks the given elements do not share a key of a unique index.
+	 *
+	 * @param elements The elements to index.
+	 * @param keys The keys of each element, as computed by {@link #prepare(Object, Object)}.
+	 * @throws IllegalArgumentException if two elements have the same key in a unique index.
+	 */
+	private void checkUniqueKeys(List<E> elements, Object[][] keys) {
+		for (int i = 0; i < indexes.size(); i++) {
+			if (indexes.get(i) instanceof UniqueIndex) {
+				final Map<Object, E> indexed = new HashMap<>(keys.length * 4 / 3 + 1);
+				for (int j = 0; j < keys.length; j++) {
+					final Object key = keys[j][i];
+					final E e = elements.get(j);
+					if (indexed.containsKey(key)) {
+						throw new IllegalArgumentException(
+								"Duplicate key " + key + " for " + e + " and " + indexed.get(key));
+					}// else
+					indexed.put(key, e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * If the given element is already contained in this set at another position, it is moved to the given index, and
+	 * the previous element is removed.
+	 */
+	@Override
+	public E set(int index, E element) {
+		final E previous = set.get(index);
+		if (Objects.equals(previous, element)) {
+			return previous;
+		}// else
+		final boolean present = set.contains(element);
+		final Object[] keys = present ? null : prepare(element, previous);
+		set.set(index, element);
+		unindex(previous);
+		if (!present) {
+			index(element, keys);
+		}
+		modCount++;
+		return previous;
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		if (set.remove(o)) {
+			unindex(cast(o));
+			modCount++;
+			return true;
+		}// else
+		return false;
+	}
+
+	@Override
+	public E remove(int index) {
+		final E element = set.remove(index);
+		unindex(element);
+		modCount++;
+		return element;
+	}
+
+	@Override
+	public void clear() {
+		set.clear();
+		for (AbstractIndex<?, E> index : indexes) {
+			index.clear();
+		}
+		modCount++;
+	}
+
+	@Override
+	public void move(int from, int to) {
+		set.move(from, to);
+	}
+
+	@Override
+	public void swap(int i, int j) {
+		set.swap(i, j);
+	}
+
+	@Override
+	public void rotate(int distance) {
+		set.rotate(distance);
+	}
+
+	@Override
+	public void reverse() {
+		set.reverse();
+	}
+
+	@Override
+	public boolean moveToFront(Object o) {
+		return set.moveToFront(o);
+	}
+
+	@Override
+	public boolean moveToBack(Object o) {
+		return set.moveToBack(o);
+	}
+
+	@Override
+	public E get(int index) {
+		return set.get(index);
+	}
+
+	@Override
+	public int size() {
+		return set.size();
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		return set.contains(o);
+	}
+
+	@Override
+	public int indexOf(Object o) {
+		return set.indexOf(o);
+	}
+
+	@Override
+	public Object[] toArray() {
+		return set.toArray();
+	}
+
+	@Override
+	public <T> T[] toArray(T[] a) {
+		return set.toArray(a);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <E> E cast(Object o) {
+		return (E) o;
+	}
+
+	/**
+	 * Secondary index of an {@link IndexedOrderedSet}.
+	 *
+	 * @param <K> Type of the keys.
+	 * @param <E> Type of the elements.
+	 */
+	public interface Index<K, E> {
+
+		/**
+		 * Returns the elements having the given key.
+		 *
+		 * @param key The key.
+		 * @return an unmodifiable view of the elements having the given key (empty if there is none).
+		 */
+		Set<E> get(Object key);
+
+		/**
+		 * Indicates if at least one element has the given key.
+		 *
+		 * @param key The key.
+		 * @return {@code true} if at least one element has the given key.
+		 */
+		boolean containsKey(Object key);
+
+		/**
+		 * Returns the keys of the indexed elements.
+		 *
+		 * @return an unmodifiable view of the keys of the indexed elements.
+		 */
+		Set<K> keys();
+	}
+
+	/**
+	 * Secondary index of an {@link IndexedOrderedSet} allowing at most one element per key.
+	 *
+	 * @param <K> Type of the keys.
+	 * @param <E> Type of the elements.
+	 */
+	public interface UniqueIndex<K, E> extends Index<K, E> {
+
+		/**
+		 * Returns the element having the given key.
+		 *
+		 * @param key The key.
+		 * @return the element having the given key, or {@code null} if there is none.
+		 */
+		E getElement(Object key);
+	}
+
+	/**
+	 * Secondary index of an {@link IndexedOrderedSet} sorted on its keys.
+	 *
+	 * @param <K> Type of the keys.
+	 * @param <E> Type of the elements.
+	 */
+	public interface SortedIndex<K, E> extends Index<K, E> {
+
+		/**
+		 * Returns the elements whose key is in the given range, in the order of their keys.
+		 *
+		 * @param fromKey The low endpoint of the range.
+		 * @param fromInclusive {@code true} if the low endpoint is included.
+		 * @param toKey The high endpoint of the range.
+		 * @param toInclusive {@code true} if the high endpoint is included.
+		 * @return a new list of the elements whose key is in the given range.
+		 */
+		List<E> range(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive);
+
+		@Override
+		NavigableSet<K> keys();
+	}
+
+	private abstract static class AbstractIndex<K, E> implements Index<K, E> {
+
+		final Function<? super E, ? extends K> keyExtractor;
+
+		AbstractIndex(Function<? super E, ? extends K> keyExtractor) {
+			this.keyExtractor = Objects.requireNonNull(keyExtractor);
+		}
+
+		/**
+		 * Computes the key of the given element, checking that it can be indexed.
+		 *
+		 * @throws IllegalArgumentException if the element cannot be indexed.
+		 */
+		K prepare(E e, Object replaced) {
+			return keyExtractor.apply(e);
+		}
+
+		abstract void put(Object key, E e);
+
+		abstract void remove(E e);
+
+		abstract void clear();
+	}
+
+	private static class HashUniqueIndex<K, E> extends AbstractIndex<K, E> implements UniqueIndex<K, E> {
+
+		private final Map<K, E> elements = new HashMap<>();
+
+		HashUniqueIndex(Function<? super E, ? extends K> keyExtractor) {
+			super(keyExtractor);
+		}
+
+		@Override
+		K prepare(E e, Object replaced) {
+			final K key = super.prepare(e, replaced);
+			final E indexed = elements.get(key);
+			if ((indexed != null || elements.containsKey(key)) && !Objects.equals(indexed, replaced)) {
+				throw new IllegalArgumentException("Duplicate key " + key + " for " + e + " and " + indexed);
+			}// else
+			return key;
+		}
+
+		@Override
+		void put(Object key, E e) {
+			final E indexed = elements.get(key);
+			if ((indexed != null || elements.containsKey(key)) && !Objects.equals(indexed, e)) {
+				throw new IllegalArgumentException("Duplicate key " + key + " for " + e + " and " + indexed);
+			}// else
+			elements.put(cast(key), e);
+		}
+
+		@Override
+		void remove(E e) {
+			elements.remove(keyExtractor.apply(e), e);
+		}
+
+		@Override
+		void clear() {
+			elements.clear();
+		}
+
+		@Override
+		public E getElement(Object key) {
+			return elements.get(key);
+		}
+
+		@Override
+		public Set<E> get(Object key) {
+			final E element = elements.get(key);
+			return element != null || elements.containsKey(key) ? Collections.singleton(element)
+					: Collections.emptySet();
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return elements.containsKey(key);
+		}
+
+		@Override
+		public Set<K> keys() {
+			return Collections.unmodifiableSet(elements.keySet());
+		}
+	}
+
+	private static class MultiIndex<K, E> extends AbstractIndex<K, E> {
+
+		final Map<K, Set<E>> elements;
+
+		MultiIndex(Function<? super E, ? extends K> keyExtractor, Map<K, Set<E>> elements) {
+			super(keyExtractor);
+			this.elements = elements;
+		}
+
+		@Override
+		void put(Object key, E e) {
+			elements.computeIfAbsent(cast(key), k -> new LinkedHashSet<>(4)).add(e);
+		}
+
+		@Override
+		void remove(E e) {
+			final K key = keyExtractor.apply(e);
+			final Set<E> indexed = elements.get(key);
+			if (indexed != null && indexed.remove(e) && indexed.isEmpty()) {
+				elements.remove(key);
+			}
+		}
+
+		@Override
+		void clear() {
+			elements.clear();
+		}
+
+		@Override
+		public Set<E> get(Object key) {
+			final Set<E> indexed = elements.get(key);
+			return indexed == null ? Collections.emptySet() : Collections.unmodifiableSet(indexed);
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return elements.containsKey(key);
+		}
+
+		@Override
+		public Set<K> keys() {
+			return Collections.unmodifiableSet(elements.keySet());
+		}
+	}
+
+	private static class TreeMultiIndex<K, E> extends MultiIndex<K, E> implements SortedIndex<K, E> {
+
+		private final Comparator<? super K> comparator;
+
+		TreeMultiIndex(Function<? super E, ? extends K> keyExtractor, Comparator<? super K> comparator) {
+			super(keyExtractor, new TreeMap<>(comparator));
+			this.comparator = comparator;
+		}
+
+		@Override
+		K prepare(E e, Object replaced) {
+			final K key = super.prepare(e, replaced);
+			try {
+				// Checking the key is comparable before modifying anything
+				comparator.compare(key, key);
+			} catch (NullPointerException | ClassCastException ex) {
+				throw new IllegalArgumentException("Cannot sort the key " + key + " of " + e, ex);
+			}
+			return key;
+		}
+
+		private NavigableMap<K, Set<E>> map() {
+			return (NavigableMap<K, Set<E>>) elements;
+		}
+
+		@Override
+		public Set<E> get(Object key) {
+			try {
+				return super.get(key);
+			} catch (NullPointerException | ClassCastException e) {
+				return Collections.emptySet();
+			}
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			try {
+				return super.containsKey(key);
+			} catch (NullPointerException | ClassCastException e) {
+				return false;
+			}
+		}
+
+		@Override
+		public List<E> range(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive) {
+			final List<E> range = new ArrayList<>();
+			for (Set<E> indexed : map().subMap(fromKey, fromInclusive, toKey, toInclusive).values()) {
+				range.addAll(indexed);
+			}
+			return range;
+		}
+
+		@Override
+		public NavigableSet<K> keys() {
+			return Collections.unmodifiableNavigableSet(map().navigableKeySet());
+		}
+	}
+}
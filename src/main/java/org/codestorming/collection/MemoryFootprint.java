@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2012-2018 Codestorming.org
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Codestorming - initial API and implementation
+ */
+package org.codestorming.collection;
+
+/**
+ * Introspection of the heap memory used by a container.
+ * <p>
+ * The sizes are <em>estimates</em>, computed with the layout described in {@link Footprints}. They only account for
+ * the internal structures of the container, not for the contained elements, which may be shared.
+ *
+ * @author Thaedrik [thaedrik@codestorming.org]
+ * @see Footprints
+ */
+public interface MemoryFootprint {
+
+	/**
+	 * Returns the number of elements (or mappings) in this container.
+	 *
+	 * @return the number of elements in this container.
+	 */
+	int size();
+
+	/**
+	 * Returns the number of elements this container can hold in its main storage before growing.
+	 *
+	 * @return the capacity of this container.
+	 */
+	int capacity();
+
+	/**
+	 * Returns the estimated size in bytes of this container object alone.
+	 *
+	 * @return the estimated shallow size of this container.
+	 */
+	long shallowBytes();
+
+	/**
+	 * Returns the estimated size in bytes of this container and all the internal structures it owns (excluding the
+	 * elements).
+	 *
+	 * @return the estimated retained size of this container.
+	 */
+	long retainedBytes();
+
+	/**
+	 * Returns the estimated size in bytes of the structures held next to the main storage of this container (hash
+	 * index, change tracking...), included in the {@link #retainedBytes() retained size}.
+	 *
+	 * @return the estimated size of the side structures of this container.
+	 */
+	long sideStructureBytes();
+}
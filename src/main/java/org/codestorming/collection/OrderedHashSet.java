@@ -15,16 +15,29 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.lang.reflect.Array;
 import java.util.AbstractCollection;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.RandomAccess;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * This class implements the {@link OrderedSet} interface. It is backed by a {@code HashSet} and uses an array to keep
@@ -33,11 +46,25 @@ import java.util.Set;
  * The addition of an object already present in the set does nothing, that is, the index at which the object was first
  * inserted does not change.
  * <p>
+ * The elements are kept in a window of the internal array delimited by a head offset, so that an insertion or a removal
+ * only shifts the elements on the shortest side of its position. Hence, the operations at both ends of the set
+ * ({@link #addFirst(Object)}, {@link #pollFirst()}, {@link #addLast(Object)}, {@link #pollLast()}...) run in amortized
+ * constant time, which makes this class usable as a de-duplicated queue, through its {@link #asDeque() Deque view}. As
+ * for {@link #add(Object)}, adding an element already present at one end of the set does nothing.
+ * <p>
  * The {@link #subList(int, int)} method is <strong>not supported</strong>
+ * <p>
+ * The internal array and {@code HashSet} are resized at once when they grow, in a time proportional to the size of the
+ * set. A set created with enough {@link #OrderedHashSet(int) initial capacity} never resizes before reaching it. In
+ * <em>incremental resize</em> mode (see {@link #OrderedHashSet(int, boolean)}), no single operation pays for a full
+ * resize: the elements are stored in fixed-size segments, so that growing the set only adds segments, and the hash
+ * index migrates a few buckets of its previous table on each following addition or removal, the lookups checking both
+ * tables. The insertions and removals in the middle of the set still shift the elements on the shortest side of their
+ * position.
  *
  * @author Thaedrik [thaedrik@codestorming.org]
  */
-public class OrderedHashSet<E> implements OrderedSet<E>, RandomAccess, Cloneable, Serializable {
+public class OrderedHashSet<E> implements OrderedSet<E>, RandomAccess, Cloneable, Serializable, MemoryFootprint {
 
 	private static final long serialVersionUID = 935390544812443951L;
 
@@ -51,27 +78,92 @@ public class OrderedHashSet<E> implements OrderedSet<E>, RandomAccess, Cloneable
 	 */
 	private static final float DEFAULT_LOAD_FACTOR = 0.75f;
 
+	/**
+	 * Size under which {@link #fromParallel(Collection)} builds the set sequentially.
+	 */
+	private static final int PARALLEL_THRESHOLD = 1 << 13;
+
+	/**
+	 * Length of the table of a {@code HashMap} created without capacity.
+	 */
+	private static final int DEFAULT_HASH_TABLE_LENGTH = 16;
+
+	/**
+	 * Maximum length of the table of a {@code HashMap}.
+	 */
+	private static final int MAX_HASH_TABLE_LENGTH = 1 << 30;
+
+	/**
+	 * Key standing for {@code null} in the concurrent maps, which do not support {@code null} keys.
+	 */
+	private static final Object NULL_KEY = new Object();
+
+	/**
+	 * Characteristics of the {@link #spliterator() spliterators} of this set.
+	 */
+	private static final int SPLITERATOR_CHARACTERISTICS = Spliterator.DISTINCT | Spliterator.ORDERED
+			| Spliterator.SIZED | Spliterator.SUBSIZED;
+
 	/**
 	 * Internal {@code HashSet}.
 	 */
 	private transient Set<E> internalSet;
 
+	/**
+	 * Length of the table of the internal {@code HashSet}, which is not observable: set from the capacity the {@code
+	 * HashSet} is created with, then doubled when it grows as the {@code HashSet} does. Since the table never shrinks,
+	 * it is the largest length the table reached. Not used in incremental resize mode.
+	 */
+	private transient int hashTableLength;
+
 	/**
 	 * Internal sequential collection of the elements put in the set
 	 */
 	private transient E[] elements;
 
+	/**
+	 * Segmented storage of the elements in incremental resize mode, replacing {@link #elements} ({@code null}
+	 * otherwise).
+	 */
+	private transient SegmentedArray<E> segments;
+
+	/**
+	 * Index in {@link #elements} (or {@link #segments}) of the first element of the set.
+	 */
+	private transient int head;
+
 	/**
 	 * The actual load factor.
 	 */
 	private float loadFactor = DEFAULT_LOAD_FACTOR;
 
+	/**
+	 * Indicates if this set is resized incrementally.
+	 */
+	private boolean incrementalResize;
+
+	/**
+	 * Cached hash code, only meaningful when {@link #hashValid} is {@code true}.
+	 */
+	private transient int hash;
+
+	/**
+	 * Indicates if the cached {@link #hash} is up to date. Reset on every modification of this set.
+	 */
+	private transient boolean hashValid;
+
+	/**
+	 * The statistics counters, {@code null} unless {@link #enableStatistics() enabled}.
+	 */
+	private transient Counters stats;
+
 	/**
 	 * Creates a new {@code OrderedHashSet}.
 	 */
 	@SuppressWarnings("unchecked")
 	public OrderedHashSet() {
 		internalSet = new HashSet<>(DEFAULT_CAPACITY);
+		hashTableLength = tableSizeFor(DEFAULT_CAPACITY);
 		elements = (E[]) new Object[DEFAULT_CAPACITY];
 	}
 
@@ -84,6 +176,7 @@ public class OrderedHashSet<E> implements OrderedSet<E>, RandomAccess, Cloneable
 	public OrderedHashSet(Collection<? extends E> c) {
 		int initialCapacity = Math.max((int) (c.size() / loadFactor) + 1, DEFAULT_CAPACITY);
 		internalSet = new HashSet<>(initialCapacity);
+		hashTableLength = tableSizeFor(initialCapacity);
 		elements = (E[]) new Object[initialCapacity];
 		addAll(c);
 	}
@@ -91,12 +184,13 @@ public class OrderedHashSet<E> implements OrderedSet<E>, RandomAccess, Cloneable
 	/**
 	 * Creates a new {@code OrderedHashSet}.
 	 *
-	 * @param initialCapacity initial capacity of the internal array.
+	 * @param initialCapacity initial capacity of the set, the number of elements it can contain without resizing.
 	 * @param loadFactor Load factor used when the internal array must grow.
 	 */
 	@SuppressWarnings("unchecked")
 	public OrderedHashSet(int initialCapacity, float loadFactor) {
-		internalSet = new HashSet<>(initialCapacity, loadFactor);
+		internalSet = new HashSet<>(hashCapacity(initialCapacity, loadFactor), loadFactor);
+		hashTableLength = tableSizeFor(hashCapacity(initialCapacity, loadFactor));
 		this.loadFactor = loadFactor;
 		elements = (E[]) new Object[initialCapacity];
 	}
@@ -104,16 +198,117 @@ public class OrderedHashSet<E> implements OrderedSet<E>, RandomAccess, Cloneable
 	/**
 	 * Creates a new {@code OrderedHashSet}.
 	 *
-	 * @param initialCapacity initial capacity of the internal array.
+	 * @param initialCapacity initial capacity of the set, the number of elements it can contain without resizing.
 	 */
-	@SuppressWarnings("unchecked")
 	public OrderedHashSet(int initialCapacity) {
-		internalSet = new HashSet<>(initialCapacity);
-		elements = (E[]) new Object[initialCapacity];
+		this(initialCapacity, false);
+	}
+
+	/**
+	 * Creates a new {@code OrderedHashSet}.
+	 * <p>
+	 * In incremental resize mode, the elements are stored in segments of {@value SegmentedArray#SEGMENT_SIZE} elements
+	 * and the hash index is migrated to a larger table a few buckets at a time, so that no single operation pays for a
+	 * full resize of this set. The lookups by position cost an additional indirection, and the lookups by hash check
+	 * both tables during a resize.
+	 *
+	 * @param initialCapacity initial capacity of the set, the number of elements it can contain without resizing.
+	 * @param incrementalResize {@code true} to spread the cost of the resizes over the following operations.
+	 */
+	@SuppressWarnings("unchecked")
+	public OrderedHashSet(int initialCapacity, boolean incrementalResize) {
+		this.incrementalResize = incrementalResize;
+		if (incrementalResize) {
+			internalSet = new IncrementalHashSet<>(initialCapacity, DEFAULT_LOAD_FACTOR);
+			segments = new SegmentedArray<>(initialCapacity);
+		} else {
+			internalSet = new HashSet<>(hashCapacity(initialCapacity, DEFAULT_LOAD_FACTOR));
+			hashTableLength = tableSizeFor(hashCapacity(initialCapacity, DEFAULT_LOAD_FACTOR));
+			elements = (E[]) new Object[initialCapacity];
+		}
+	}
+
+	/**
+	 * Indicates if this set is resized incrementally.
+	 *
+	 * @return {@code true} if this set is in incremental resize mode.
+	 * @see #OrderedHashSet(int, boolean)
+	 */
+	public boolean isIncrementalResize() {
+		return incrementalResize;
+	}
+
+	/**
+	 * Creates a new {@code OrderedHashSet} containing the distinct elements of the given collection, in their first
+	 * occurrence order.
+	 * <p>
+	 * The duplicates are detected in parallel in the common fork-join pool, then the set is filled in a single pass
+	 * without any resizing. This is worthwhile for large collections containing many duplicates.
+	 *
+	 * @param c The collection used for initializing the {@code OrderedHashSet}.
+	 * @return a new {@code OrderedHashSet} containing the distinct elements of the given collection.
+	 */
+	public static <E> OrderedHashSet<E> fromParallel(Collection<? extends E> c) {
+		if (c.size() < PARALLEL_THRESHOLD) {
+			return new OrderedHashSet<>(c);
+		}// else
+		final Object[] array = c.toArray();
+		final ConcurrentHashMap<Object, Integer> firstIndexes = new ConcurrentHashMap<>(array.length);
+		IntStream.range(0, array.length).parallel()
+				.forEach(i -> firstIndexes.merge(maskNull(array[i]), i, Math::min));
+		final int[] indexes = firstIndexes.values().parallelStream().mapToInt(Integer::intValue).toArray();
+		Arrays.parallelSort(indexes);
+		final OrderedHashSet<E> set = withExpectedSize(indexes.length);
+		final Object[] elts = set.elements;
+		for (int i = 0; i < indexes.length; i++) {
+			final Object element = array[indexes[i]];
+			set.internalSet.add(unmaskNull(element));
+			elts[i] = unmaskNull(element);
+		}
+		return set;
+	}
+
+	/**
+	 * Creates a new {@code OrderedHashSet} able to contain the given number of elements without resizing.
+	 */
+	static <E> OrderedHashSet<E> withExpectedSize(int expectedSize) {
+		return new OrderedHashSet<>(Math.max(expectedSize, DEFAULT_CAPACITY));
+	}
+
+	/**
+	 * Returns the capacity of an internal {@code HashSet} able to contain the given number of elements without
+	 * rehashing.
+	 */
+	private static int hashCapacity(int capacity, float loadFactor) {
+		return (int) (capacity / loadFactor + 1);
+	}
+
+	/**
+	 * Returns the length of the table of a {@code HashSet} created with the given capacity, as computed by {@code
+	 * HashMap}.
+	 */
+	private static int tableSizeFor(int capacity) {
+		if (capacity <= 1) {
+			return 1;
+		}// else
+		return capacity > MAX_HASH_TABLE_LENGTH / 2 ? MAX_HASH_TABLE_LENGTH : Integer.highestOneBit(capacity - 1) << 1;
+	}
+
+	private static Object maskNull(Object o) {
+		return o == null ? NULL_KEY : o;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <E> E unmaskNull(Object o) {
+		return o == NULL_KEY ? null : (E) o;
 	}
 
 	@Override
 	public boolean add(E e) {
+		if (head + size() == arrayLength() && contains(e)) {
+			// Not growing a full array for an element already contained
+			return false;
+		}// else
 		ensureCapacity(size() + 1);
 		return internalAdd(size(), e);
 	}
@@ -159,16 +354,29 @@ public class OrderedHashSet<E> implements OrderedSet<E>, RandomAccess, Cloneable
 	private boolean internalRemove(int index, Object o) {
 		if (index >= 0 && internalSet.remove(o)) {
 			internalListRemove(index);
+			onRemove(o, index);
 			return true;
 		}// else
 		return false;
 	}
 
+	/**
+	 * Removes the element at the given index from the internal array, the internal {@code HashSet} must have already
+	 * been updated.
+	 */
 	private void internalListRemove(int index) {
-		if (index < elements.length - 1) {
-			System.arraycopy(elements, index + 1, elements, index, elements.length - (index + 1));
+		hashValid = false;
+		final int size = size();
+		if (index < size - index) {
+			copyElements(head, head + 1, index);
+			setElementAt(head++, null);
 		} else {
-			elements[index] = null;
+			copyElements(head + index + 1, head + index, size - index);
+			setElementAt(head + size, null);
+		}
+		countMoved(Math.min(index, size - index));
+		if (size == 0) {
+			head = 0;
 		}
 	}
 
@@ -177,6 +385,126 @@ public class OrderedHashSet<E> implements OrderedSet<E>, RandomAccess, Cloneable
 		return internalSet.size();
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The capacity is the length of the internal elements array.
+	 */
+	@Override
+	public int capacity() {
+		return arrayLength();
+	}
+
+	@Override
+	public long shallowBytes() {
+		return Footprints.objectBytes(4, 18);
+	}
+
+	@Override
+	public long retainedBytes() {
+		final long arrayBytes = segments == null ? Footprints.referenceArrayBytes(elements.length)
+				: segments.retainedBytes();
+		return shallowBytes() + arrayBytes + sideStructureBytes();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The side structure of an {@code OrderedHashSet} is its internal {@code HashSet}, whose table has the length it
+	 * was presized to or the largest length it grew to.
+	 */
+	@Override
+	public long sideStructureBytes() {
+		if (internalSet instanceof IncrementalHashSet) {
+			return ((IncrementalHashSet<E>) internalSet).retainedBytes();
+		}// else
+		return Footprints.objectBytes(1, 0) + Footprints.hashMapBytes(size(), hashTableLength);
+	}
+
+	/**
+	 * Enables the collection of the statistics of this set, if not already enabled.
+	 * <p>
+	 * The statistics are disabled by default, and do not cost anything until enabled.
+	 *
+	 * @see #statistics()
+	 */
+	public void enableStatistics() {
+		if (stats == null) {
+			stats = new Counters();
+		}
+	}
+
+	/**
+	 * Disables the collection of the statistics of this set, discarding the collected ones.
+	 */
+	public void disableStatistics() {
+		stats = null;
+	}
+
+	/**
+	 * Indicates if the statistics of this set are being collected.
+	 *
+	 * @return {@code true} if the statistics of this set are enabled.
+	 */
+	public boolean isStatisticsEnabled() {
+		return stats != null;
+	}
+
+	/**
+	 * Resets the statistics of this set.
+	 *
+	 * @throws IllegalStateException if the statistics are not enabled.
+	 */
+	public void resetStatistics() {
+		checkStatisticsEnabled();
+		stats = new Counters();
+	}
+
+	/**
+	 * Returns a snapshot of the statistics collected since they were enabled or last reset.
+	 * <p>
+	 * The hash collisions are not counted while the set is modified: they are estimated when taking the snapshot, by
+	 * distributing the current elements in a table of the size the internal {@code HashSet} would have. This costs a
+	 * time proportional to the size of this set.
+	 *
+	 * @return a snapshot of the statistics of this set.
+	 * @throws IllegalStateException if the statistics are not enabled.
+	 */
+	public Statistics statistics() {
+		checkStatisticsEnabled();
+		final int tableLength = Footprints.hashTableLength(size());
+		final BitSet usedBuckets = new BitSet(tableLength);
+		int collisions = 0;
+		for (int i = head, end = head + size(); i < end; i++) {
+			final Object e = elementAt(i);
+			final int h = e == null ? 0 : e.hashCode();
+			final int bucket = (h ^ (h >>> 16)) & (tableLength - 1);
+			if (usedBuckets.get(bucket)) {
+				collisions++;
+			} else {
+				usedBuckets.set(bucket);
+			}
+		}
+		final Counters counters = stats;
+		return new Statistics(counters.growths, counters.shrinks, counters.moved, counters.indexOfCalls,
+				counters.indexOfScanned, counters.indexOfMaxScan, collisions);
+	}
+
+	/**
+	 * Counts the given number of elements copied in the internal array, if the statistics are enabled.
+	 */
+	private void countMoved(int count) {
+		if (stats != null) {
+			stats.moved += count;
+		}
+	}
+
+	private void checkStatisticsEnabled() {
+		if (stats == null) {
+			throw new IllegalStateException("The statistics are not enabled");
+		}
+	}
+
 	@Override
 	public boolean isEmpty() {
 		return internalSet.isEmpty();
@@ -208,8 +536,17 @@ public class OrderedHashSet<E> implements OrderedSet<E>, RandomAccess, Cloneable
 	@Override
 	@SuppressWarnings("unchecked")
 	public void clear() {
+		if (!isEmpty()) {
+			onClear();
+		}
 		internalSet.clear();
-		elements = (E[]) new Object[DEFAULT_CAPACITY];
+		if (segments == null) {
+			elements = (E[]) new Object[DEFAULT_CAPACITY];
+		} else {
+			segments = new SegmentedArray<>(DEFAULT_CAPACITY);
+		}
+		head = 0;
+		hashValid = false;
 	}
 
 	@Override
@@ -220,65 +557,142 @@ public class OrderedHashSet<E> implements OrderedSet<E>, RandomAccess, Cloneable
 	@Override
 	public Object[] toArray() {
 		final Object[] array = new Object[size()];
-		System.arraycopy(elements, 0, array, 0, size());
+		copyTo(head, array, 0, size());
 		return array;
 	}
 
-	// Taken from AbstractCollection
 	@Override
 	@SuppressWarnings("unchecked")
 	public <T> T[] toArray(T[] a) {
-		// Estimate size of array; be prepared to see more or fewer elements
-		int size = size();
-		T[] r = a.length >= size ? a : (T[]) java.lang.reflect.Array.newInstance(a.getClass().getComponentType(), size);
-		Iterator<E> it = iterator();
-
-		for (int i = 0; i < r.length; i++) {
-			if (!it.hasNext()) {
-				// fewer elements than expected
-				if (a != r) {
-					return Arrays.copyOf(r, i);
+		final int size = size();
+		if (a.length < size) {
+			if (segments == null) {
+				return (T[]) Arrays.copyOfRange(elements, head, head + size, a.getClass());
+			}// else
+			a = (T[]) Array.newInstance(a.getClass().getComponentType(), size);
+		}
+		copyTo(head, a, 0, size);
+		if (a.length > size) {
+			a[size] = null;
+		}
+		return a;
+	}
+
+	@Override
+	public void forEach(Consumer<? super E> action) {
+		Objects.requireNonNull(action);
+		if (segments != null) {
+			segments.forEach(head, head + size(), action);
+			return;
+		}// else
+		final E[] elts = elements;
+		for (int i = head, end = head + size(); i < end; i++) {
+			action.accept(elts[i]);
+		}
+	}
+
+	@Override
+	public boolean removeIf(Predicate<? super E> filter) {
+		Objects.requireNonNull(filter);
+		final int end = head + size();
+		int kept = head;
+		int shifted = 0;
+		int i = head;
+		try {
+			for (; i < end; i++) {
+				final E element = elementAt(i);
+				if (filter.test(element)) {
+					internalSet.remove(element);
+					onRemove(element, i - head);
+				} else {
+					if (kept != i) {
+						setElementAt(kept, element);
+						shifted++;
+					}
+					kept++;
+				}
+			}
+		} finally {
+			// Keeping the elements not yet tested if the filter threw an exception
+			if (i < end) {
+				copyElements(i, kept, end - i);
+				if (kept != i) {
+					shifted += end - i;
 				}
-				// null-terminate
-				r[i] = null;
-				return r;
+				kept += end - i;
+			}
+			countMoved(shifted);
+			if (kept < end) {
+				clearElements(kept, end);
+				hashValid = false;
 			}
-			r[i] = (T) it.next();
 		}
-		return it.hasNext() ? finishToArray(r, it) : r;
+		if (kept == end) {
+			return false;
+		}// else
+		compaction();
+		return true;
 	}
 
 	/**
-	 * Reallocates the array being used within toArray when the iterator returned more elements than expected, and
-	 * finishes filling it from the iterator.
+	 * {@inheritDoc}
 	 * <p>
-	 * <em>Taken from {@link AbstractCollection}</em>
-	 *
-	 * @param r the array, replete with previously stored elements
-	 * @param it the in-progress iterator over this collection
-	 * @return array containing the elements in the given array, plus any further elements returned by the iterator,
-	 * trimmed to size
+	 * When the operator returns an element already contained in this set, or the same element for two different
+	 * positions, only the first occurrence is kept.
 	 */
-	@SuppressWarnings("unchecked")
-	private static <T> T[] finishToArray(T[] r, Iterator<?> it) {
-		T[] array = r;
-		int i = r.length;
-		while (it.hasNext()) {
-			int cap = array.length;
-			if (i == cap) {
-				int newCap = ((cap / 2) + 1) * 3;
-				if (newCap <= cap) { // integer overflow
-					if (cap == Integer.MAX_VALUE) {
-						throw new OutOfMemoryError("Required array size too large");
+	@Override
+	public void replaceAll(UnaryOperator<E> operator) {
+		Objects.requireNonNull(operator);
+		final int start = head;
+		final int end = start + size();
+		boolean modified = false;
+		try {
+			for (int i = start; i < end; i++) {
+				final E element = elementAt(i);
+				final E replacement = operator.apply(element);
+				if (replacement != element) {
+					setElementAt(i, replacement);
+					modified = true;
+				}
+			}
+		} finally {
+			if (modified) {
+				// Rebuilding the hash index, removing the duplicates
+				internalSet.clear();
+				int kept = start;
+				for (int i = start; i < end; i++) {
+					final E element = elementAt(i);
+					if (internalSet.add(element)) {
+						setElementAt(kept++, element);
 					}
-					newCap = Integer.MAX_VALUE;
 				}
-				array = Arrays.copyOf(array, newCap);
+				clearElements(kept, end);
+				hashValid = false;
 			}
-			array[i++] = (T) it.next();
 		}
-		// trim if overallocated
-		return (i == array.length) ? array : Arrays.copyOf(array, i);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The returned {@code Spliterator} covers the elements contained in this set at the time of the call.
+	 */
+	@Override
+	public Spliterator<E> spliterator() {
+		if (segments != null) {
+			return segments.spliterator(head, head + size(), Spliterator.DISTINCT | Spliterator.ORDERED);
+		}// else
+		return Spliterators.spliterator(elements, head, head + size(), Spliterator.DISTINCT | Spliterator.ORDERED);
+	}
+
+	@Override
+	public Stream<E> stream() {
+		return StreamSupport.stream(this::spliterator, SPLITERATOR_CHARACTERISTICS, false);
+	}
+
+	@Override
+	public Stream<E> parallelStream() {
+		return StreamSupport.stream(this::spliterator, SPLITERATOR_CHARACTERISTICS, true);
 	}
 
 	@Override
@@ -286,8 +700,18 @@ public class OrderedHashSet<E> implements OrderedSet<E>, RandomAccess, Cloneable
 	public Object clone() {
 		try {
 			OrderedHashSet<E> clone = (OrderedHashSet<E>) super.clone();
-			clone.elements = Arrays.copyOf(elements, size());
-			clone.internalSet = (HashSet<E>) ((HashSet<E>) internalSet).clone();
+			if (segments == null) {
+				clone.elements = Arrays.copyOfRange(elements, head, head + size());
+				clone.internalSet = (HashSet<E>) ((HashSet<E>) internalSet).clone();
+				// The cloned HashSet is sized for its elements
+				clone.hashTableLength = isEmpty() ? DEFAULT_HASH_TABLE_LENGTH
+						: tableSizeFor(hashCapacity(size(), loadFactor));
+			} else {
+				clone.segments = segments.copy(head, head + size());
+				clone.internalSet = ((IncrementalHashSet<E>) internalSet).copy();
+			}
+			clone.head = 0;
+			clone.stats = null;
 			return clone;
 		} catch (CloneNotSupportedException ignore) {
 			// Should not happen, we are cloneable
@@ -295,11 +719,20 @@ public class OrderedHashSet<E> implements OrderedSet<E>, RandomAccess, Cloneable
 		}
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * When the given object is also an {@code OrderedHashSet}, the comparison is rejected as soon as the sizes or the
+	 * already computed hash codes differ, and the elements are compared directly.
+	 */
 	@Override
 	public boolean equals(Object obj) {
 		if (obj == this) {
 			return true;
 		}// else
+		if (obj instanceof OrderedHashSet) {
+			return equalsOrderedHashSet((OrderedHashSet<?>) obj);
+		}// else
 		if (!(obj instanceof OrderedSet)) {
 			return false;
 		}// else
@@ -323,13 +756,48 @@ public class OrderedHashSet<E> implements OrderedSet<E>, RandomAccess, Cloneable
 		return true;
 	}
 
+	private boolean equalsOrderedHashSet(OrderedHashSet<?> other) {
+		final int size = size();
+		if (size != other.size() || hashValid && other.hashValid && hash != other.hash) {
+			return false;
+		}// else
+		if (segments != null || other.segments != null) {
+			for (int i = 0; i < size; i++) {
+				if (!Objects.equals(elementAt(head + i), other.elementAt(other.head + i))) {
+					return false;
+				}
+			}
+			return true;
+		}// else
+		final Object[] elts = elements;
+		final Object[] otherElts = other.elements;
+		final int offset = other.head - head;
+		for (int i = head, end = head + size; i < end; i++) {
+			if (!Objects.equals(elts[i], otherElts[i + offset])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The hash code is cached until the next modification of this set. Modifying an element contained in this set in a
+	 * way that changes its own hash code is not detected.
+	 */
 	@Override
 	public int hashCode() {
-		int hashcode = 0;
-		for (E elt : this) {
-			hashcode = 31 * hashcode + elt.hashCode();
+		if (!hashValid) {
+			int hashcode = 0;
+			for (int i = head, end = head + size(); i < end; i++) {
+				final E elt = elementAt(i);
+				hashcode = 31 * hashcode + (elt == null ? 0 : elt.hashCode());
+			}
+			hash = hashcode;
+			hashValid = true;
 		}
-		return hashcode;
+		return hash;
 	}
 
 	/*
@@ -354,12 +822,31 @@ public class OrderedHashSet<E> implements OrderedSet<E>, RandomAccess, Cloneable
 		return modified;
 	}
 
+	/**
+	 * Inserts the given element at the given index if it is not already contained in this set.
+	 * <p>
+	 * The shortest side of the insertion position is shifted. There must be room at the end of the internal array (see
+	 * {@link #ensureCapacity(int)}), or before the first element (see {@link #ensureFrontCapacity()}).
+	 */
 	private boolean internalAdd(int index, E e) {
 		if (internalSet.add(e)) {
-			if (index < size() - 1) {
-				System.arraycopy(elements, index, elements, index + 1, size() - index);
+			if (size() > (int) (hashTableLength * loadFactor) && hashTableLength < MAX_HASH_TABLE_LENGTH) {
+				hashTableLength <<= 1;
 			}
-			elements[index] = e;
+			hashValid = false;
+			final int size = size() - 1;
+			final int moved;
+			if (head > 0 && (index < size - index || head + size == arrayLength())) {
+				copyElements(head, head - 1, index);
+				head--;
+				moved = index;
+			} else {
+				copyElements(head + index, head + index + 1, size - index);
+				moved = size - index;
+			}
+			setElementAt(head + index, e);
+			countMoved(moved);
+			onAdd(e, index);
 			return true;
 		}// else
 		return false;
@@ -370,29 +857,35 @@ public class OrderedHashSet<E> implements OrderedSet<E>, RandomAccess, Cloneable
 		if (index < 0 || index >= size()) {
 			throw new IndexOutOfBoundsException();
 		}// else
-		return elements[index];
+		return elementAt(head + index);
 	}
 
 	/**
 	 * {@inheritDoc}
 	 * <p>
 	 * If the given {@code element} already exists in this set, it will be <strong>moved</strong> to the given index and
-	 * the element at this index will be <strong>removed</strong>.
+	 * the element at this index will be <strong>removed</strong>. The elements following the previous position of the
+	 * moved element are then shifted to the left.
 	 */
 	@Override
 	public E set(int index, E element) {
-		if (index < 0 || index >= size()) {
-			throw new IndexOutOfBoundsException();
-		}// else
+		checkElementIndex(index);
+		final E previousElement = elementAt(head + index);
 		final int elementIndex = indexOf(element);
+		if (elementIndex == index) {
+			return previousElement;
+		}// else
+		internalSet.remove(previousElement);
+		setElementAt(head + index, element);
+		onRemove(previousElement, index);
 		if (elementIndex >= 0) {
 			internalListRemove(elementIndex);
+			onMove(element, elementIndex, elementIndex < index ? index - 1 : index);
 		} else {
 			internalSet.add(element);
+			hashValid = false;
+			onAdd(element, index);
 		}
-		final E previousElement = elements[index];
-		internalSet.remove(previousElement);
-		elements[index] = element;
 		return previousElement;
 	}
 
@@ -410,42 +903,159 @@ public class OrderedHashSet<E> implements OrderedSet<E>, RandomAccess, Cloneable
 		if (index < 0 || index >= size()) {
 			throw new IndexOutOfBoundsException();
 		}// else
-		final E element = elements[index];
+		final E element = elementAt(head + index);
 		if (internalSet.remove(element)) {
 			internalListRemove(index);
+			onRemove(element, index);
 		}
 		return element;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Only the elements between the two positions are shifted, the internal {@code HashSet} is not modified.
+	 */
 	@Override
-	public int indexOf(Object o) {
-		final E[] elts = elements;
-		final int size = size();
-		if (o == null) {
-			for (int i = 0; i < size; i++) {
-				if (elts[i] == null) {
-					return i;
-				}
-			}
-		} else {
-			for (int i = 0; i < size; i++) {
-				if (o.equals(elts[i])) {
-					return i;
-				}
+	public void move(int from, int to) {
+		checkElementIndex(from);
+		checkElementIndex(to);
+		if (from != to) {
+			final int start = head;
+			final E element = elementAt(start + from);
+			if (from < to) {
+				copyElements(start + from + 1, start + from, to - from);
+			} else {
+				copyElements(start + to, start + to + 1, from - to);
 			}
+			setElementAt(start + to, element);
+			hashValid = false;
+			countMoved(Math.abs(to - from) + 1);
+			onMove(element, from, to);
 		}
-		return -1;
 	}
 
 	@Override
-	public int lastIndexOf(Object o) {
-		// This is a Set, there is at most one occurence of an object.
-		return indexOf(o);
+	public void swap(int i, int j) {
+		checkElementIndex(i);
+		checkElementIndex(j);
+		if (i != j) {
+			final E element = elementAt(head + i);
+			final E other = elementAt(head + j);
+			setElementAt(head + i, other);
+			setElementAt(head + j, element);
+			hashValid = false;
+			countMoved(2);
+			onMove(element, i, j);
+			onMove(other, j, i);
+		}
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The shortest side of the rotation is copied in a temporary array, the other one is shifted with a single copy.
+	 */
 	@Override
-	public ListIterator<E> listIterator() {
-		return listIterator(0);
+	public void rotate(int distance) {
+		final int size = size();
+		if (size > 1) {
+			int d = distance % size;
+			if (d < 0) {
+				d += size;
+			}
+			if (d != 0) {
+				final int start = head;
+				if (d <= size - d) {
+					final Object[] tail = new Object[d];
+					copyTo(start + size - d, tail, 0, d);
+					copyElements(start, start + d, size - d);
+					copyFrom(tail, start, d);
+				} else {
+					final int left = size - d;
+					final Object[] first = new Object[left];
+					copyTo(start, first, 0, left);
+					copyElements(start + left, start, d);
+					copyFrom(first, start + d, left);
+				}
+				hashValid = false;
+				// The shortest side is copied twice
+				countMoved(size + Math.min(d, size - d));
+			}
+		}
+	}
+
+	@Override
+	public void reverse() {
+		final int size = size();
+		for (int i = head, j = head + size - 1; i < j; i++, j--) {
+			final E element = elementAt(i);
+			setElementAt(i, elementAt(j));
+			setElementAt(j, element);
+		}
+		hashValid = false;
+		countMoved(size - (size & 1));
+	}
+
+	@Override
+	public boolean moveToFront(Object o) {
+		final int index = indexOf(o);
+		if (index < 0) {
+			return false;
+		}// else
+		move(index, 0);
+		return true;
+	}
+
+	@Override
+	public boolean moveToBack(Object o) {
+		final int index = indexOf(o);
+		if (index < 0) {
+			return false;
+		}// else
+		move(index, size() - 1);
+		return true;
+	}
+
+	@Override
+	public int indexOf(Object o) {
+		final E[] elts = elements;
+		final int start = head;
+		final int end = start + size();
+		int index = -1;
+		if (segments != null) {
+			final int i = segments.indexOf(o, start, end);
+			index = i < 0 ? -1 : i - start;
+		} else if (o == null) {
+			for (int i = start; i < end; i++) {
+				if (elts[i] == null) {
+					index = i - start;
+					break;
+				}
+			}
+		} else {
+			for (int i = start; i < end; i++) {
+				if (o.equals(elts[i])) {
+					index = i - start;
+					break;
+				}
+			}
+		}
+		if (stats != null) {
+			stats.indexOfScan(index < 0 ? end - start : index + 1);
+		}
+		return index;
+	}
+
+	@Override
+	public int lastIndexOf(Object o) {
+		// This is a Set, there is at most one occurence of an object.
+		return indexOf(o);
+	}
+
+	@Override
+	public ListIterator<E> listIterator() {
+		return listIterator(0);
 	}
 
 	@Override
@@ -458,35 +1068,418 @@ public class OrderedHashSet<E> implements OrderedSet<E>, RandomAccess, Cloneable
 		throw new UnsupportedOperationException();
 	}
 
+	/*
+	 * DEQUE METHODS
+	 */
+
+	/**
+	 * Returns a {@link Deque} view of this set.
+	 * <p>
+	 * The operations at both ends of the view run in amortized constant time. As for {@link #add(Object)}, the
+	 * insertion of an element already contained in this set does nothing.
+	 *
+	 * @return a {@link Deque} view of this set.
+	 */
+	public Deque<E> asDeque() {
+		return new DequeView();
+	}
+
+	/**
+	 * Inserts the given element at the front of this set, if it is not already contained in this set.
+	 *
+	 * @param e The element to insert.
+	 */
+	public void addFirst(E e) {
+		offerFirst(e);
+	}
+
+	/**
+	 * Inserts the given element at the end of this set, if it is not already contained in this set.
+	 *
+	 * @param e The element to insert.
+	 */
+	public void addLast(E e) {
+		add(e);
+	}
+
+	/**
+	 * Inserts the given element at the front of this set, if it is not already contained in this set.
+	 *
+	 * @param e The element to insert.
+	 * @return {@code true} if the element was added, {@code false} if it was already contained in this set.
+	 */
+	public boolean offerFirst(E e) {
+		ensureFrontCapacity();
+		return internalAdd(0, e);
+	}
+
+	/**
+	 * Inserts the given element at the end of this set, if it is not already contained in this set.
+	 *
+	 * @param e The element to insert.
+	 * @return {@code true} if the element was added, {@code false} if it was already contained in this set.
+	 */
+	public boolean offerLast(E e) {
+		return add(e);
+	}
+
+	/**
+	 * Removes and returns the first element of this set.
+	 *
+	 * @return the first element of this set.
+	 * @throws NoSuchElementException if this set is empty.
+	 */
+	public E removeFirst() {
+		if (isEmpty()) {
+			throw new NoSuchElementException();
+		}// else
+		return remove(0);
+	}
+
+	/**
+	 * Removes and returns the last element of this set.
+	 *
+	 * @return the last element of this set.
+	 * @throws NoSuchElementException if this set is empty.
+	 */
+	public E removeLast() {
+		if (isEmpty()) {
+			throw new NoSuchElementException();
+		}// else
+		return remove(size() - 1);
+	}
+
+	/**
+	 * Removes and returns the first element of this set.
+	 *
+	 * @return the first element of this set, or {@code null} if this set is empty.
+	 */
+	public E pollFirst() {
+		return isEmpty() ? null : remove(0);
+	}
+
+	/**
+	 * Removes and returns the last element of this set.
+	 *
+	 * @return the last element of this set, or {@code null} if this set is empty.
+	 */
+	public E pollLast() {
+		return isEmpty() ? null : remove(size() - 1);
+	}
+
+	/**
+	 * Returns the first element of this set.
+	 *
+	 * @return the first element of this set.
+	 * @throws NoSuchElementException if this set is empty.
+	 */
+	public E getFirst() {
+		if (isEmpty()) {
+			throw new NoSuchElementException();
+		}// else
+		return elementAt(head);
+	}
+
+	/**
+	 * Returns the last element of this set.
+	 *
+	 * @return the last element of this set.
+	 * @throws NoSuchElementException if this set is empty.
+	 */
+	public E getLast() {
+		if (isEmpty()) {
+			throw new NoSuchElementException();
+		}// else
+		return elementAt(head + size() - 1);
+	}
+
+	/**
+	 * Returns the first element of this set.
+	 *
+	 * @return the first element of this set, or {@code null} if this set is empty.
+	 */
+	public E peekFirst() {
+		return isEmpty() ? null : elementAt(head);
+	}
+
+	/**
+	 * Returns the last element of this set.
+	 *
+	 * @return the last element of this set, or {@code null} if this set is empty.
+	 */
+	public E peekLast() {
+		return isEmpty() ? null : elementAt(head + size() - 1);
+	}
+
+	/**
+	 * Returns an iterator over the elements of this set, in reverse order.
+	 *
+	 * @return an iterator over the elements of this set, in reverse order.
+	 */
+	public Iterator<E> descendingIterator() {
+		final ListIterator<E> iter = listIterator(size());
+		return new Iterator<E>() {
+			@Override
+			public boolean hasNext() {
+				return iter.hasPrevious();
+			}
+
+			@Override
+			public E next() {
+				return iter.previous();
+			}
+
+			@Override
+			public void remove() {
+				iter.remove();
+			}
+		};
+	}
+
+	/*
+	 * MODIFICATION HOOKS
+	 */
+
+	/**
+	 * Called after the addition of the given element at the given index.
+	 * <p>
+	 * Does nothing by default. The hooks are not called for the operations reordering or replacing all the elements
+	 * ({@link #rotate(int)}, {@link #reverse()}, {@link #replaceAll(UnaryOperator)}).
+	 *
+	 * @param e The added element.
+	 * @param index The index of the added element.
+	 */
+	protected void onAdd(E e, int index) {
+		// Nothing by default
+	}
+
+	/**
+	 * Called after the removal of the given element.
+	 * <p>
+	 * Does nothing by default.
+	 *
+	 * @param o The removed element.
+	 * @param index The index of the element before its removal.
+	 */
+	protected void onRemove(Object o, int index) {
+		// Nothing by default
+	}
+
+	/**
+	 * Called after the move of the given element, the elements between the two positions being shifted.
+	 * <p>
+	 * Does nothing by default.
+	 *
+	 * @param e The moved element.
+	 * @param from The index of the element before the move.
+	 * @param to The index of the element after the move.
+	 */
+	protected void onMove(E e, int from, int to) {
+		// Nothing by default
+	}
+
+	/**
+	 * Called before the removal of all the elements of this set, when it is not empty.
+	 * <p>
+	 * Does nothing by default.
+	 */
+	protected void onClear() {
+		// Nothing by default
+	}
+
+	private void checkElementIndex(int index) {
+		if (index < 0 || index >= size()) {
+			throw new IndexOutOfBoundsException();
+		}
+	}
+
+	/**
+	 * Returns the element at the given position of the internal array.
+	 */
+	private E elementAt(int index) {
+		return segments == null ? elements[index] : segments.get(index);
+	}
+
+	private void setElementAt(int index, E e) {
+		if (segments == null) {
+			elements[index] = e;
+		} else {
+			segments.set(index, e);
+		}
+	}
+
+	/**
+	 * Returns the length of the internal array.
+	 */
+	private int arrayLength() {
+		return segments == null ? elements.length : segments.length();
+	}
+
+	/**
+	 * Copies the given number of elements inside the internal array, the ranges may overlap.
+	 */
+	private void copyElements(int src, int dst, int count) {
+		if (segments == null) {
+			System.arraycopy(elements, src, elements, dst, count);
+		} else {
+			segments.copy(src, dst, count);
+		}
+	}
+
+	private void clearElements(int from, int to) {
+		if (segments == null) {
+			Arrays.fill(elements, from, to, null);
+		} else {
+			segments.clear(from, to);
+		}
+	}
+
+	/**
+	 * Copies the given number of elements of the internal array to the given array.
+	 */
+	private void copyTo(int from, Object[] dst, int dstPos, int count) {
+		if (segments == null) {
+			System.arraycopy(elements, from, dst, dstPos, count);
+		} else {
+			segments.copyTo(from, dst, dstPos, count);
+		}
+	}
+
+	/**
+	 * Copies the given number of elements of the given array to the internal array.
+	 */
+	private void copyFrom(Object[] src, int to, int count) {
+		if (segments == null) {
+			System.arraycopy(src, 0, elements, to, count);
+		} else {
+			segments.copyFrom(src, 0, to, count);
+		}
+	}
+
+	/**
+	 * Counts the resize of the segmented array from the given length, if the statistics are enabled.
+	 * <p>
+	 * Only the resizes of a {@link SegmentedArray#isSmall() small} array copy the elements.
+	 */
+	private void countSegmentsResize(int previousLength) {
+		final int length = segments.length();
+		if (stats != null && length != previousLength) {
+			if (length > previousLength) {
+				stats.growths++;
+			} else {
+				stats.shrinks++;
+			}
+			if (previousLength < SegmentedArray.SEGMENT_SIZE) {
+				stats.moved += size();
+			}
+		}
+	}
+
+	/**
+	 * Ensures the internal array can hold {@code minCapacity} elements after the {@link #head} offset.
+	 * <p>
+	 * The elements are moved back to the beginning of the array when the room before the head is large enough,
+	 * otherwise the array grows. In incremental resize mode, the unused segments before the head are moved to the end
+	 * instead, then new segments are appended.
+	 */
 	@SuppressWarnings("unchecked")
 	private void ensureCapacity(int minCapacity) {
+		if (segments != null) {
+			final int length = segments.length();
+			if (head + minCapacity > length) {
+				head = segments.ensureLength(head, size(), minCapacity);
+				countSegmentsResize(length);
+			}
+			return;
+		}// else
 		final int capacity = elements.length;
-		int newCapacity = minCapacity;
-		if (newCapacity > capacity) {
-			newCapacity = (int) (newCapacity * (loadFactor + 1)) + 1;
-			if (newCapacity < minCapacity) {
-				newCapacity = minCapacity;
-			}
-			final E[] newArray = (E[]) new Object[newCapacity];
-			System.arraycopy(elements, 0, newArray, 0, size());
-			elements = newArray;
+		if (head + minCapacity > capacity) {
+			final int size = size();
+			if (minCapacity <= capacity && head >= size / 2) {
+				System.arraycopy(elements, head, elements, 0, size);
+				Arrays.fill(elements, Math.max(size, head), head + size, null);
+				countMoved(size);
+			} else {
+				int newCapacity = (int) (minCapacity * (loadFactor + 1)) + 1;
+				if (newCapacity < minCapacity) {
+					newCapacity = minCapacity;
+				}
+				final E[] newArray = (E[]) new Object[newCapacity];
+				System.arraycopy(elements, head, newArray, 0, size);
+				elements = newArray;
+				countMoved(size);
+				if (stats != null) {
+					stats.growths++;
+				}
+			}
+			head = 0;
+		}
+	}
+
+	/**
+	 * Ensures there is room before the first element of the internal array, by moving the elements to the middle of
+	 * the free space or by growing the array. In incremental resize mode, an unused segment after the elements is moved
+	 * to the beginning instead, otherwise a new segment is prepended.
+	 */
+	@SuppressWarnings("unchecked")
+	private void ensureFrontCapacity() {
+		if (segments != null) {
+			final int length = segments.length();
+			head = segments.ensureFrontRoom(head, size());
+			countSegmentsResize(length);
+		} else if (head == 0) {
+			final int size = size();
+			final int free = elements.length - size;
+			if (free > 0 && free >= size / 2) {
+				final int gap = (free + 1) / 2;
+				System.arraycopy(elements, 0, elements, gap, size);
+				Arrays.fill(elements, 0, Math.min(gap, size), null);
+				head = gap;
+				countMoved(size);
+			} else {
+				final int newCapacity = (int) (size * (loadFactor + 1)) + 1;
+				final int gap = (newCapacity - size + 1) / 2;
+				final E[] newArray = (E[]) new Object[newCapacity];
+				System.arraycopy(elements, 0, newArray, gap, size);
+				elements = newArray;
+				head = gap;
+				countMoved(size);
+				if (stats != null) {
+					stats.growths++;
+				}
+			}
 		}
 	}
 
+	/**
+	 * Shrinks the internal array by half when it is less than half full. In incremental resize mode, the unused
+	 * segments are released instead, except one after the elements.
+	 */
 	@SuppressWarnings("unchecked")
 	private void compaction() {
+		if (segments != null) {
+			final int length = segments.length();
+			head = segments.trim(head, size());
+			countSegmentsResize(length);
+			return;
+		}// else
 		final int newSize = elements.length / 2;
 		if (size() < newSize) {
 			final E[] newArray = (E[]) new Object[newSize];
-			System.arraycopy(elements, 0, newArray, 0, size());
+			System.arraycopy(elements, head, newArray, 0, size());
 			elements = newArray;
+			head = 0;
+			countMoved(size());
+			if (stats != null) {
+				stats.shrinks++;
+			}
 		}
 	}
 
 	private void writeObject(ObjectOutputStream s) throws IOException {
 		final int size = size();
 		s.defaultWriteObject();
-		s.writeInt(elements.length);
+		s.writeInt(arrayLength());
 		s.writeInt(size);
 		for (E e : this) {
 			s.writeObject(e);
@@ -498,13 +1491,167 @@ public class OrderedHashSet<E> implements OrderedSet<E>, RandomAccess, Cloneable
 		s.defaultReadObject();
 		int length = s.readInt();
 		int size = s.readInt();
-		elements = (E[]) new Object[length];
-		internalSet = new HashSet<>(size, loadFactor);
+		if (incrementalResize) {
+			segments = new SegmentedArray<>(length);
+			internalSet = new IncrementalHashSet<>(size, loadFactor);
+		} else {
+			elements = (E[]) new Object[length];
+			internalSet = new HashSet<>(hashCapacity(size, loadFactor), loadFactor);
+			hashTableLength = tableSizeFor(hashCapacity(size, loadFactor));
+		}
 		for (int i = 0; i < size; i++) {
 			add((E) s.readObject());
 		}
 	}
 
+	/**
+	 * {@link Deque} view of an {@code OrderedHashSet}.
+	 */
+	final class DequeView extends AbstractCollection<E> implements Deque<E> {
+
+		@Override
+		public void addFirst(E e) {
+			OrderedHashSet.this.addFirst(e);
+		}
+
+		@Override
+		public void addLast(E e) {
+			OrderedHashSet.this.addLast(e);
+		}
+
+		@Override
+		public boolean offerFirst(E e) {
+			return OrderedHashSet.this.offerFirst(e);
+		}
+
+		@Override
+		public boolean offerLast(E e) {
+			return OrderedHashSet.this.offerLast(e);
+		}
+
+		@Override
+		public E removeFirst() {
+			return OrderedHashSet.this.removeFirst();
+		}
+
+		@Override
+		public E removeLast() {
+			return OrderedHashSet.this.removeLast();
+		}
+
+		@Override
+		public E pollFirst() {
+			return OrderedHashSet.this.pollFirst();
+		}
+
+		@Override
+		public E pollLast() {
+			return OrderedHashSet.this.pollLast();
+		}
+
+		@Override
+		public E getFirst() {
+			return OrderedHashSet.this.getFirst();
+		}
+
+		@Override
+		public E getLast() {
+			return OrderedHashSet.this.getLast();
+		}
+
+		@Override
+		public E peekFirst() {
+			return OrderedHashSet.this.peekFirst();
+		}
+
+		@Override
+		public E peekLast() {
+			return OrderedHashSet.this.peekLast();
+		}
+
+		@Override
+		public boolean removeFirstOccurrence(Object o) {
+			// This is a Set, there is at most one occurence of an object.
+			return OrderedHashSet.this.remove(o);
+		}
+
+		@Override
+		public boolean removeLastOccurrence(Object o) {
+			// This is a Set, there is at most one occurence of an object.
+			return OrderedHashSet.this.remove(o);
+		}
+
+		@Override
+		public boolean add(E e) {
+			return OrderedHashSet.this.add(e);
+		}
+
+		@Override
+		public boolean offer(E e) {
+			return OrderedHashSet.this.offerLast(e);
+		}
+
+		@Override
+		public E remove() {
+			return OrderedHashSet.this.removeFirst();
+		}
+
+		@Override
+		public E poll() {
+			return OrderedHashSet.this.pollFirst();
+		}
+
+		@Override
+		public E element() {
+			return OrderedHashSet.this.getFirst();
+		}
+
+		@Override
+		public E peek() {
+			return OrderedHashSet.this.peekFirst();
+		}
+
+		@Override
+		public void push(E e) {
+			OrderedHashSet.this.addFirst(e);
+		}
+
+		@Override
+		public E pop() {
+			return OrderedHashSet.this.removeFirst();
+		}
+
+		@Override
+		public boolean remove(Object o) {
+			return OrderedHashSet.this.remove(o);
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			return OrderedHashSet.this.contains(o);
+		}
+
+		@Override
+		public int size() {
+			return OrderedHashSet.this.size();
+		}
+
+		@Override
+		public void clear() {
+			OrderedHashSet.this.clear();
+		}
+
+		@Override
+		public Iterator<E> iterator() {
+			return OrderedHashSet.this.iterator();
+		}
+
+		@Override
+		public Iterator<E> descendingIterator() {
+			return OrderedHashSet.this.descendingIterator();
+		}
+	}
+
 	static class OrderedSetIterator<T> implements ListIterator<T> {
 
 		private final OrderedHashSet<T> orderedHashSet;
@@ -536,7 +1683,7 @@ public class OrderedHashSet<E> implements OrderedSet<E>, RandomAccess, Cloneable
 			}// else
 			removed = false;// Cleaning removed flag
 			lastReturned = currentIndex;
-			return orderedHashSet.elements[currentIndex++];
+			return orderedHashSet.elementAt(orderedHashSet.head + currentIndex++);
 		}
 
 		@Override
@@ -546,7 +1693,8 @@ public class OrderedHashSet<E> implements OrderedSet<E>, RandomAccess, Cloneable
 			} else if (removed) {
 				throw new IllegalStateException("The current element has already been removed.");
 			}// else
-			if (orderedHashSet.internalRemove(lastReturned, orderedHashSet.elements[lastReturned])) {
+			final Object element = orderedHashSet.elementAt(orderedHashSet.head + lastReturned);
+			if (orderedHashSet.internalRemove(lastReturned, element)) {
 				removed = true;
 				if (lastReturned < currentIndex) {
 					currentIndex--;
@@ -566,7 +1714,7 @@ public class OrderedHashSet<E> implements OrderedSet<E>, RandomAccess, Cloneable
 			}// else
 			removed = false;// Cleaning removed flag
 			lastReturned = --currentIndex;
-			return orderedHashSet.elements[currentIndex];
+			return orderedHashSet.elementAt(orderedHashSet.head + currentIndex);
 		}
 
 		@Override
@@ -581,10 +1729,14 @@ public class OrderedHashSet<E> implements OrderedSet<E>, RandomAccess, Cloneable
 
 		@Override
 		public void set(T e) {
-			final Object toRemove = orderedHashSet.elements[lastReturned];
-			orderedHashSet.elements[lastReturned] = e;
+			final int index = orderedHashSet.head + lastReturned;
+			final Object toRemove = orderedHashSet.elementAt(index);
+			orderedHashSet.setElementAt(index, e);
 			orderedHashSet.internalSet.remove(toRemove);
 			orderedHashSet.internalSet.add(e);
+			orderedHashSet.hashValid = false;
+			orderedHashSet.onRemove(toRemove, lastReturned);
+			orderedHashSet.onAdd(e, lastReturned);
 		}
 
 		@Override
@@ -592,4 +1744,144 @@ public class OrderedHashSet<E> implements OrderedSet<E>, RandomAccess, Cloneable
 			orderedHashSet.add(currentIndex++, e);
 		}
 	}
+
+	/**
+	 * Mutable statistics counters of an {@code OrderedHashSet}.
+	 */
+	private static final class Counters {
+
+		long growths;
+
+		long shrinks;
+
+		long moved;
+
+		long indexOfCalls;
+
+		long indexOfScanned;
+
+		int indexOfMaxScan;
+
+		void indexOfScan(int length) {
+			indexOfCalls++;
+			indexOfScanned += length;
+			if (length > indexOfMaxScan) {
+				indexOfMaxScan = length;
+			}
+		}
+	}
+
+	/**
+	 * Snapshot of the statistics of an {@link OrderedHashSet}.
+	 *
+	 * @see OrderedHashSet#statistics()
+	 */
+	public static final class Statistics {
+
+		private final long growths;
+
+		private final long shrinks;
+
+		private final long movedElements;
+
+		private final long indexOfCalls;
+
+		private final long indexOfScanned;
+
+		private final int indexOfMaxScan;
+
+		private final int collisions;
+
+		Statistics(long growths, long shrinks, long movedElements, long indexOfCalls, long indexOfScanned,
+				int indexOfMaxScan, int collisions) {
+			this.growths = growths;
+			this.shrinks = shrinks;
+			this.movedElements = movedElements;
+			this.indexOfCalls = indexOfCalls;
+			this.indexOfScanned = indexOfScanned;
+			this.indexOfMaxScan = indexOfMaxScan;
+			this.collisions = collisions;
+		}
+
+		/**
+		 * Returns the number of times the internal array grew.
+		 *
+		 * @return the number of growths of the internal array.
+		 */
+		public long getGrowths() {
+			return growths;
+		}
+
+		/**
+		 * Returns the number of times the internal array was shrunk.
+		 *
+		 * @return the number of compactions of the internal array.
+		 */
+		public long getShrinks() {
+			return shrinks;
+		}
+
+		/**
+		 * Returns the total number of elements copied in the internal array: the elements shifted by the insertions,
+		 * removals and reorderings, and the elements copied when the array is resized or its elements slid back to
+		 * one end.
+		 *
+		 * @return the number of elements copied in the internal array.
+		 */
+		public long getMovedElements() {
+			return movedElements;
+		}
+
+		/**
+		 * Returns the number of linear searches ({@code indexOf}, and the operations relying on it).
+		 *
+		 * @return the number of linear searches.
+		 */
+		public long getIndexOfCalls() {
+			return indexOfCalls;
+		}
+
+		/**
+		 * Returns the total number of elements compared by the linear searches.
+		 *
+		 * @return the number of elements compared by the linear searches.
+		 */
+		public long getIndexOfScanned() {
+			return indexOfScanned;
+		}
+
+		/**
+		 * Returns the mean number of elements compared by a linear search.
+		 *
+		 * @return the mean length of the linear searches ({@code 0} if there was none).
+		 */
+		public double getIndexOfMeanScan() {
+			return indexOfCalls == 0 ? 0 : (double) indexOfScanned / indexOfCalls;
+		}
+
+		/**
+		 * Returns the maximum number of elements compared by a linear search.
+		 *
+		 * @return the length of the longest linear search.
+		 */
+		public int getIndexOfMaxScan() {
+			return indexOfMaxScan;
+		}
+
+		/**
+		 * Returns the estimated number of elements sharing their hash bucket with a previous element.
+		 *
+		 * @return the estimated number of hash collisions.
+		 */
+		public int getCollisions() {
+			return collisions;
+		}
+
+		@Override
+		public String toString() {
+			return "Statistics[growths=" + growths + ", shrinks=" + shrinks + ", movedElements=" + movedElements
+					+ ", indexOfCalls=" + indexOfCalls + ", indexOfScanned=" + indexOfScanned + ", indexOfMaxScan="
+					+ indexOfMaxScan + ", collisions=" + collisions + "]";
+		}
+	}
 }
@@ -33,6 +33,108 @@ import java.util.function.UnaryOperator;
  */
 public interface OrderedSet<E> extends List<E>, Set<E> {
 
+	/**
+	 * Moves the element at the position {@code from} to the position {@code to}, shifting the elements in between.
+	 * <p>
+	 * The elements contained in this set do not change.
+	 *
+	 * @param from Current index of the element to move.
+	 * @param to Index of the element once moved.
+	 * @throws IndexOutOfBoundsException if one of the indexes is out of range ({@code index < 0 || index >= size()}).
+	 */
+	default void move(int from, int to) {
+		final int size = size();
+		if (from < 0 || from >= size || to < 0 || to >= size) {
+			throw new IndexOutOfBoundsException();
+		}// else
+		if (from != to) {
+			add(to, remove(from));
+		}
+	}
+
+	/**
+	 * Swaps the elements at the specified positions.
+	 *
+	 * @param i Index of the first element to swap.
+	 * @param j Index of the second element to swap.
+	 * @throws IndexOutOfBoundsException if one of the indexes is out of range ({@code index < 0 || index >= size()}).
+	 */
+	default void swap(int i, int j) {
+		final int low = Math.min(i, j);
+		final int high = Math.max(i, j);
+		move(high, low);
+		if (low != high) {
+			move(low + 1, high);
+		}
+	}
+
+	/**
+	 * Rotates the elements of this set by the specified distance.
+	 * <p>
+	 * After this call, the element at index {@code i} will be the element previously at index {@code (i - distance)
+	 * mod size()}, as specified by {@link java.util.Collections#rotate(List, int) Collections.rotate()}.
+	 *
+	 * @param distance The distance to rotate the set (may be zero, negative or greater than {@code size()}).
+	 */
+	default void rotate(int distance) {
+		final int size = size();
+		if (size > 1) {
+			int d = distance % size;
+			if (d < 0) {
+				d += size;
+			}
+			if (d <= size - d) {
+				for (int i = 0; i < d; i++) {
+					move(size - 1, 0);
+				}
+			} else {
+				for (int i = d; i < size; i++) {
+					move(0, size - 1);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reverses the order of the elements of this set.
+	 */
+	default void reverse() {
+		final int last = size() - 1;
+		for (int i = 0; i < last; i++) {
+			move(last, i);
+		}
+	}
+
+	/**
+	 * Moves the given element at the beginning of this set.
+	 *
+	 * @param o The element to move.
+	 * @return {@code true} if this set contains the given element.
+	 */
+	default boolean moveToFront(Object o) {
+		final int index = indexOf(o);
+		if (index < 0) {
+			return false;
+		}// else
+		move(index, 0);
+		return true;
+	}
+
+	/**
+	 * Moves the given element at the end of this set.
+	 *
+	 * @param o The element to move.
+	 * @return {@code true} if this set contains the given element.
+	 */
+	default boolean moveToBack(Object o) {
+		final int index = indexOf(o);
+		if (index < 0) {
+			return false;
+		}// else
+		move(index, size() - 1);
+		return true;
+	}
+
 	@Override
 	default void replaceAll(UnaryOperator<E> operator) {
 		Objects.requireNonNull(operator);
@@ -0,0 +1,405 @@
+/*
+ * Copyright (c) 2012-2018 Codestorming.org
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Codestorming - initial API and implementation
+ */
+package org.codestorming.collection;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Array of references split in fixed-size segments, storing the elements of an {@link OrderedHashSet} in incremental
+ * resize mode.
+ * <p>
+ * While the array is shorter than {@link #SEGMENT_SIZE}, it is made of a single segment which is reallocated when it
+ * grows, copying at most {@code SEGMENT_SIZE} elements. Then, the array only grows or shrinks by whole segments, at
+ * its end or at its beginning: the elements are never copied, only the directory of the segments is, which is {@code
+ * SEGMENT_SIZE} times shorter than the array. The unused segments at one end are moved to the other end before
+ * allocating new ones.
+ * <p>
+ * The positions are the ones of a flat array of {@link #length()} slots, the owner keeping track of the window of the
+ * slots in use.
+ *
+ * @author Thaedrik [thaedrik@codestorming.org]
+ * @see OrderedHashSet#OrderedHashSet(int, boolean)
+ */
+final class SegmentedArray<E> {
+
+	/**
+	 * Number of bits used to address a slot inside a segment.
+	 */
+	static final int SEGMENT_SHIFT = 12;
+
+	/**
+	 * Number of slots of a full segment.
+	 */
+	static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+
+	private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+	/**
+	 * The segments: a single segment shorter than {@link #SEGMENT_SIZE}, or only full segments.
+	 */
+	private Object[][] segments;
+
+	/**
+	 * Total number of slots.
+	 */
+	private int length;
+
+	/**
+	 * Creates a new {@code SegmentedArray}.
+	 *
+	 * @param capacity The initial number of slots, rounded up to a whole number of segments from {@link
+	 * #SEGMENT_SIZE}.
+	 */
+	SegmentedArray(int capacity) {
+		if (capacity < SEGMENT_SIZE) {
+			segments = new Object[][] {new Object[capacity]};
+			length = capacity;
+		} else {
+			final int count = (capacity + SEGMENT_MASK) >>> SEGMENT_SHIFT;
+			segments = new Object[count][];
+			for (int i = 0; i < count; i++) {
+				segments[i] = new Object[SEGMENT_SIZE];
+			}
+			length = count << SEGMENT_SHIFT;
+		}
+	}
+
+	/**
+	 * Returns the number of slots of this array.
+	 */
+	int length() {
+		return length;
+	}
+
+	/**
+	 * Indicates if this array is made of a single segment shorter than {@link #SEGMENT_SIZE}, reallocated when it
+	 * grows.
+	 */
+	boolean isSmall() {
+		return length < SEGMENT_SIZE;
+	}
+
+	@SuppressWarnings("unchecked")
+	E get(int index) {
+		return (E) segments[index >>> SEGMENT_SHIFT][index & SEGMENT_MASK];
+	}
+
+	void set(int index, E e) {
+		segments[index >>> SEGMENT_SHIFT][index & SEGMENT_MASK] = e;
+	}
+
+	/**
+	 * Copies the given number of slots from the source position to the destination position, the ranges may overlap
+	 * (as for {@link System#arraycopy(Object, int, Object, int, int)}).
+	 */
+	void copy(int src, int dst, int count) {
+		if (src == dst || count <= 0) {
+			return;
+		}// else
+		if (dst < src) {
+			while (count > 0) {
+				final int n = Math.min(count, SEGMENT_SIZE - Math.max(src & SEGMENT_MASK, dst & SEGMENT_MASK));
+				System.arraycopy(segments[src >>> SEGMENT_SHIFT], src & SEGMENT_MASK, segments[dst >>> SEGMENT_SHIFT],
+						dst & SEGMENT_MASK, n);
+				src += n;
+				dst += n;
+				count -= n;
+			}
+		} else {
+			// Copying backward, from the end of the ranges
+			int srcEnd = src + count;
+			int dstEnd = dst + count;
+			while (count > 0) {
+				final int n = Math.min(count,
+						Math.min(((srcEnd - 1) & SEGMENT_MASK) + 1, ((dstEnd - 1) & SEGMENT_MASK) + 1));
+				srcEnd -= n;
+				dstEnd -= n;
+				count -= n;
+				System.arraycopy(segments[srcEnd >>> SEGMENT_SHIFT], srcEnd & SEGMENT_MASK,
+						segments[dstEnd >>> SEGMENT_SHIFT], dstEnd & SEGMENT_MASK, n);
+			}
+		}
+	}
+
+	/**
+	 * Copies the given number of slots from the given position to the given array.
+	 */
+	void copyTo(int from, Object[] dst, int dstPos, int count) {
+		while (count > 0) {
+			final int n = Math.min(count, SEGMENT_SIZE - (from & SEGMENT_MASK));
+			System.arraycopy(segments[from >>> SEGMENT_SHIFT], from & SEGMENT_MASK, dst, dstPos, n);
+			from += n;
+			dstPos += n;
+			count -= n;
+		}
+	}
+
+	/**
+	 * Copies the given number of elements of the given array to the given position.
+	 */
+	void copyFrom(Object[] src, int srcPos, int to, int count) {
+		while (count > 0) {
+			final int n = Math.min(count, SEGMENT_SIZE - (to & SEGMENT_MASK));
+			System.arraycopy(src, srcPos, segments[to >>> SEGMENT_SHIFT], to & SEGMENT_MASK, n);
+			srcPos += n;
+			to += n;
+			count -= n;
+		}
+	}
+
+	/**
+	 * Clears the slots between the given positions.
+	 */
+	void clear(int from, int to) {
+		while (from < to) {
+			final int n = Math.min(to - from, SEGMENT_SIZE - (from & SEGMENT_MASK));
+			final int offset = from & SEGMENT_MASK;
+			Arrays.fill(segments[from >>> SEGMENT_SHIFT], offset, offset + n, null);
+			from += n;
+		}
+	}
+
+	/**
+	 * Returns the position of the first slot between the given positions containing the given object, or {@code -1}.
+	 */
+	int indexOf(Object o, int from, int to) {
+		while (from < to) {
+			final Object[] segment = segments[from >>> SEGMENT_SHIFT];
+			final int offset = from & SEGMENT_MASK;
+			final int end = offset + Math.min(to - from, SEGMENT_SIZE - offset);
+			for (int i = offset; i < end; i++) {
+				if (Objects.equals(o, segment[i])) {
+					return from + i - offset;
+				}
+			}
+			from += end - offset;
+		}
+		return -1;
+	}
+
+	@SuppressWarnings("unchecked")
+	void forEach(int from, int to, Consumer<? super E> action) {
+		while (from < to) {
+			final Object[] segment = segments[from >>> SEGMENT_SHIFT];
+			final int offset = from & SEGMENT_MASK;
+			final int end = offset + Math.min(to - from, SEGMENT_SIZE - offset);
+			for (int i = offset; i < end; i++) {
+				action.accept((E) segment[i]);
+			}
+			from += end - offset;
+		}
+	}
+
+	/**
+	 * Returns a new {@code SegmentedArray} containing the slots between the given positions, from its first slot.
+	 */
+	SegmentedArray<E> copy(int from, int to) {
+		final SegmentedArray<E> copy = new SegmentedArray<>(to - from);
+		for (int i = from; i < to; ) {
+			final int n = Math.min(to - i, SEGMENT_SIZE - (i & SEGMENT_MASK));
+			copy.copyFrom(segments[i >>> SEGMENT_SHIFT], i & SEGMENT_MASK, i - from, n);
+			i += n;
+		}
+		return copy;
+	}
+
+	/**
+	 * Ensures there are at least {@code minLength} slots from the given start position, the slots in use being the
+	 * {@code size} ones from the start.
+	 * <p>
+	 * The unused segments before the start are moved to the end first, then new segments are appended. While this array
+	 * is {@link #isSmall() small}, its segment is reallocated with the slots in use at its beginning.
+	 *
+	 * @return the new start position of the slots in use.
+	 */
+	int ensureLength(int start, int size, int minLength) {
+		if (start + minLength <= length) {
+			return start;
+		}// else
+		if (isSmall()) {
+			final int newLength = Math.min(SEGMENT_SIZE, Math.max(minLength + (minLength >> 1), minLength + 1));
+			final Object[] segment = new Object[newLength];
+			System.arraycopy(segments[0], start, segment, 0, size);
+			segments[0] = segment;
+			length = newLength;
+			if (minLength <= newLength) {
+				return 0;
+			}// else
+			start = 0;
+		}
+		final int missing = (start + minLength - length + SEGMENT_MASK) >>> SEGMENT_SHIFT;
+		final int recycled = Math.min(missing, start >>> SEGMENT_SHIFT);
+		if (recycled > 0) {
+			rotate(recycled);
+			start -= recycled << SEGMENT_SHIFT;
+		}
+		final int added = missing - recycled;
+		if (added > 0) {
+			final int count = segments.length;
+			segments = Arrays.copyOf(segments, count + added);
+			for (int i = count; i < segments.length; i++) {
+				segments[i] = new Object[SEGMENT_SIZE];
+			}
+			length += added << SEGMENT_SHIFT;
+		}
+		return start;
+	}
+
+	/**
+	 * Ensures there is at least one slot before the given start position, the slots in use being the {@code size} ones
+	 * from the start.
+	 * <p>
+	 * An unused segment after the slots in use is moved to the beginning first, otherwise a new segment is prepended.
+	 * While this array is {@link #isSmall() small}, its segment is reallocated with the slots in use at its middle.
+	 *
+	 * @return the new start position of the slots in use.
+	 */
+	int ensureFrontRoom(int start, int size) {
+		if (start > 0) {
+			return start;
+		}// else
+		if (isSmall()) {
+			final int newLength = Math.min(SEGMENT_SIZE, Math.max(size + (size >> 1), size + 2));
+			final int gap = (newLength - size + 1) / 2;
+			final Object[] segment = new Object[newLength];
+			System.arraycopy(segments[0], start, segment, gap, size);
+			segments[0] = segment;
+			length = newLength;
+			return gap;
+		}// else
+		if (length - (start + size) >= SEGMENT_SIZE) {
+			rotate(segments.length - 1);
+		} else {
+			final Object[][] newSegments = new Object[segments.length + 1][];
+			System.arraycopy(segments, 0, newSegments, 1, segments.length);
+			newSegments[0] = new Object[SEGMENT_SIZE];
+			segments = newSegments;
+			length += SEGMENT_SIZE;
+		}
+		return start + SEGMENT_SIZE;
+	}
+
+	/**
+	 * Releases the unused segments before the given start position, and the unused segments after the slots in use
+	 * except one, the slots in use being the {@code size} ones from the start.
+	 * <p>
+	 * Does nothing while this array is {@link #isSmall() small}.
+	 *
+	 * @return the new start position of the slots in use.
+	 */
+	int trim(int start, int size) {
+		if (isSmall()) {
+			return start;
+		}// else
+		final int leading = start >>> SEGMENT_SHIFT;
+		final int used = Math.max(1, (start + size + SEGMENT_MASK) >>> SEGMENT_SHIFT) - leading;
+		final int kept = Math.min(segments.length - leading, used + 1);
+		if (kept == segments.length) {
+			return start;
+		}// else
+		segments = Arrays.copyOfRange(segments, leading, leading + kept);
+		length = kept << SEGMENT_SHIFT;
+		return start - (leading << SEGMENT_SHIFT);
+	}
+
+	/**
+	 * Moves the given number of segments from the beginning to the end of this array.
+	 */
+	private void rotate(int count) {
+		final Object[][] moved = Arrays.copyOf(segments, count);
+		System.arraycopy(segments, count, segments, 0, segments.length - count);
+		System.arraycopy(moved, 0, segments, segments.length - count, count);
+	}
+
+	/**
+	 * Returns the estimated size of this array, its directory and its segments.
+	 */
+	long retainedBytes() {
+		return Footprints.objectBytes(1, 4) + Footprints.referenceArrayBytes(segments.length)
+				+ (isSmall() ? Footprints.referenceArrayBytes(length)
+				: segments.length * Footprints.referenceArrayBytes(SEGMENT_SIZE));
+	}
+
+	/**
+	 * Returns a {@link Spliterator} over the slots between the given positions.
+	 */
+	Spliterator<E> spliterator(int from, int to, int characteristics) {
+		return new SegmentSpliterator<>(segments, from, to, characteristics | Spliterator.SIZED | Spliterator.SUBSIZED);
+	}
+
+	/**
+	 * Spliterator over the slots of a {@code SegmentedArray}, split in halves.
+	 */
+	private static final class SegmentSpliterator<E> implements Spliterator<E> {
+
+		private final Object[][] segments;
+
+		private int index;
+
+		private final int fence;
+
+		private final int characteristics;
+
+		SegmentSpliterator(Object[][] segments, int from, int to, int characteristics) {
+			this.segments = segments;
+			this.index = from;
+			this.fence = to;
+			this.characteristics = characteristics;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public boolean tryAdvance(Consumer<? super E> action) {
+			Objects.requireNonNull(action);
+			if (index < fence) {
+				final int i = index++;
+				action.accept((E) segments[i >>> SEGMENT_SHIFT][i & SEGMENT_MASK]);
+				return true;
+			}// else
+			return false;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public void forEachRemaining(Consumer<? super E> action) {
+			Objects.requireNonNull(action);
+			for (int i = index; i < fence; i++) {
+				action.accept((E) segments[i >>> SEGMENT_SHIFT][i & SEGMENT_MASK]);
+			}
+			index = fence;
+		}
+
+		@Override
+		public Spliterator<E> trySplit() {
+			final int middle = (index + fence) >>> 1;
+			if (middle <= index) {
+				return null;
+			}// else
+			final Spliterator<E> prefix = new SegmentSpliterator<>(segments, index, middle, characteristics);
+			index = middle;
+			return prefix;
+		}
+
+		@Override
+		public long estimateSize() {
+			return fence - index;
+		}
+
+		@Override
+		public int characteristics() {
+			return characteristics;
+		}
+	}
+}
@@ -0,0 +1,446 @@
+/*
+ * Copyright (c) 2012-2018 Codestorming.org
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Codestorming - initial API and implementation
+ */
+package org.codestorming.collection.chrono;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+/**
+ * Ordered journal of the changes applied to a chrono collection or map, read by independent consumers.
+ * <p>
+ * Unlike the {@code added} and {@code removed} deltas, which only hold the net changes since the last reset, the
+ * journal records every change with a sequence number. Each consumer reads the journal through its own {@link Cursor},
+ * from the sequence number at which it was {@link #newCursor() created}.
+ * <p>
+ * The records are stored in fixed-size segments. A segment is discarded, and its storage reused, once every open
+ * cursor has read past it: the cursors must therefore be {@link Cursor#close() closed} when no longer used. When no
+ * cursor is open, the changes are only counted.
+ * <p>
+ * For the collections, the key of a change is the element and its value is {@code null}.
+ * <p>
+ * <strong>Note that this implementation is not synchronized.</strong>
+ *
+ * @param <K> Type of the keys (or elements).
+ * @param <V> Type of the values.
+ * @author Thaedrik [thaedrik@codestorming.org]
+ * @since 2.1
+ */
+public class ChangeJournal<K, V> {
+
+	private static final int DEFAULT_SEGMENT_SIZE = 1024;
+
+	private static final Operation[] OPERATIONS = Operation.values();
+
+	private final int segmentSize;
+
+	private final List<Cursor> cursors = new ArrayList<>();
+
+	/**
+	 * The oldest segment still read by a cursor, {@code null} if there is no open cursor.
+	 */
+	private Segment head;
+
+	/**
+	 * The segment receiving the next change. It always has room for one more change.
+	 */
+	private Segment tail;
+
+	/**
+	 * A discarded segment, reused for the next one.
+	 */
+	private Segment spare;
+
+	/**
+	 * Sequence number of the next change.
+	 */
+	private long nextSequence;
+
+	/**
+	 * Creates a new {@code ChangeJournal}.
+	 */
+	public ChangeJournal() {
+		this(DEFAULT_SEGMENT_SIZE);
+	}
+
+	/**
+	 * Creates a new {@code ChangeJournal} with the given segment size.
+	 *
+	 * @param segmentSize Number of changes held by a segment.
+	 * @throws IllegalArgumentException if {@code segmentSize <= 0}.
+	 */
+	public ChangeJournal(int segmentSize) {
+		if (segmentSize <= 0) {
+			throw new IllegalArgumentException("The segment size must be positive: " + segmentSize);
+		}// else
+		this.segmentSize = segmentSize;
+	}
+
+	/**
+	 * Records a change.
+	 *
+	 * @param operation The operation.
+	 * @param key The key (or element) concerned by the change.
+	 * @param value The value concerned by the change.
+	 * @return the sequence number of the change.
+	 */
+	public long record(Operation operation, K key, V value) {
+		final long sequence = nextSequence++;
+		if (tail != null) {
+			final int offset = (int) (sequence - tail.first);
+			tail.operations[offset] = (byte) operation.ordinal();
+			tail.keys[offset] = key;
+			tail.values[offset] = value;
+			if (offset + 1 == segmentSize) {
+				tail = tail.next = newSegment(nextSequence);
+			}
+		}
+		return sequence;
+	}
+
+	/**
+	 * Returns the sequence number of the next change.
+	 *
+	 * @return the sequence number of the next change.
+	 */
+	public long nextSequence() {
+		return nextSequence;
+	}
+
+	/**
+	 * Returns the number of changes retained by this journal: the changes of the segments not yet read by every open
+	 * cursor.
+	 *
+	 * @return the number of changes retained by this journal.
+	 */
+	public long retained() {
+		return head == null ? 0 : nextSequence - head.first;
+	}
+
+	/**
+	 * Opens a new cursor, positioned at the next change.
+	 *
+	 * @return a new cursor.
+	 */
+	public Cursor newCursor() {
+		if (tail == null) {
+			head = tail = newSegment(nextSequence);
+		}
+		final Cursor cursor = new Cursor(tail, nextSequence);
+		cursors.add(cursor);
+		return cursor;
+	}
+
+	private Segment newSegment(long first) {
+		final Segment segment = spare;
+		if (segment == null) {
+			return new Segment(first, segmentSize);
+		}// else
+		spare = null;
+		segment.first = first;
+		return segment;
+	}
+
+	/**
+	 * Discards the segments every open cursor has read past.
+	 */
+	private void truncate() {
+		if (cursors.isEmpty()) {
+			recycle(head, null);
+			head = tail = null;
+			return;
+		}// else
+		long minFirst = Long.MAX_VALUE;
+		for (Cursor cursor : cursors) {
+			minFirst = Math.min(minFirst, cursor.segment.first);
+		}
+		Segment segment = head;
+		while (segment.first < minFirst) {
+			segment = segment.next;
+		}
+		recycle(head, segment);
+		head = segment;
+	}
+
+	/**
+	 * Releases the segments from the given one (included) to the given end (excluded), keeping the last one as spare.
+	 */
+	private void recycle(Segment from, Segment end) {
+		for (Segment segment = from; segment != end; ) {
+			final Segment next = segment.next;
+			Arrays.fill(segment.keys, null);
+			Arrays.fill(segment.values, null);
+			segment.next = null;
+			spare = segment;
+			segment = next;
+		}
+	}
+
+	/**
+	 * The kind of a change.
+	 */
+	public enum Operation {
+
+		/**
+		 * An element was added, or a key was mapped to a value.
+		 */
+		ADD,
+
+		/**
+		 * An element, or the mapping of a key, was removed.
+		 */
+		REMOVE,
+
+		/**
+		 * All the elements, or mappings, were removed.
+		 */
+		CLEAR
+	}
+
+	/**
+	 * A change read from a {@link ChangeJournal}.
+	 *
+	 * @param <K> Type of the keys (or elements).
+	 * @param <V> Type of the values.
+	 */
+	public static final class Change<K, V> {
+
+		private final long sequence;
+
+		private final Operation operation;
+
+		private final K key;
+
+		private final V value;
+
+		Change(long sequence, Operation operation, K key, V value) {
+			this.sequence = sequence;
+			this.operation = operation;
+			this.key = key;
+			this.value = value;
+		}
+
+		/**
+		 * Returns the sequence number of this change.
+		 *
+		 * @return the sequence number of this change.
+		 */
+		public long getSequence() {
+			return sequence;
+		}
+
+		/**
+		 * Returns the operation of this change.
+		 *
+		 * @return the operation of this change.
+		 */
+		public Operation getOperation() {
+			return operation;
+		}
+
+		/**
+		 * Returns the key (or element) concerned by this change.
+		 *
+		 * @return the key concerned by this change ({@code null} for a {@link Operation#CLEAR CLEAR}).
+		 */
+		public K getKey() {
+			return key;
+		}
+
+		/**
+		 * Returns the value concerned by this change: the new value of an addition, the old value of a removal.
+		 *
+		 * @return the value concerned by this change.
+		 */
+		public V getValue() {
+			return value;
+		}
+
+		@Override
+		public String toString() {
+			return sequence + ":" + operation + "(" + key + ", " + value + ")";
+		}
+	}
+
+	/**
+	 * Reading position of a consumer in a {@link ChangeJournal}.
+	 */
+	public final class Cursor implements AutoCloseable {
+
+		private Segment segment;
+
+		private long position;
+
+		private boolean closed;
+
+		Cursor(Segment segment, long position) {
+			this.segment = segment;
+			this.position = position;
+		}
+
+		/**
+		 * Returns the sequence number of the next change read by this cursor.
+		 *
+		 * @return the position of this cursor.
+		 */
+		public long position() {
+			return position;
+		}
+
+		/**
+		 * Returns the number of changes not yet read by this cursor.
+		 *
+		 * @return the number of pending changes.
+		 */
+		public long pending() {
+			return closed ? 0 : nextSequence - position;
+		}
+
+		/**
+		 * Reads the next change.
+		 *
+		 * @return the next change, or {@code null} if there is none.
+		 * @throws IllegalStateException if this cursor is closed.
+		 */
+		@SuppressWarnings("unchecked")
+		public Change<K, V> poll() {
+			if (closed) {
+				throw new IllegalStateException("The cursor is closed");
+			} else if (position == nextSequence) {
+				return null;
+			}// else
+			final int offset = (int) (position - segment.first);
+			final Change<K, V> change = new Change<>(position, OPERATIONS[segment.operations[offset]],
+					(K) segment.keys[offset], (V) segment.values[offset]);
+			advance();
+			return change;
+		}
+
+		/**
+		 * Returns an iterator over the pending changes, which does not move this cursor.
+		 * <p>
+		 * The iterator must not be used once this journal or this cursor is modified.
+		 */
+		Iterator<Change<K, V>> peek() {
+			if (closed) {
+				throw new IllegalStateException("The cursor is closed");
+			}// else
+			return new Iterator<Change<K, V>>() {
+				private Segment current = segment;
+
+				private long next = position;
+
+				@Override
+				public boolean hasNext() {
+					return next < nextSequence;
+				}
+
+				@Override
+				@SuppressWarnings("unchecked")
+				public Change<K, V> next() {
+					if (!hasNext()) {
+						throw new NoSuchElementException();
+					}// else
+					final int offset = (int) (next - current.first);
+					final Change<K, V> change = new Change<>(next, OPERATIONS[current.operations[offset]],
+							(K) current.keys[offset], (V) current.values[offset]);
+					next++;
+					if (offset + 1 == segmentSize) {
+						current = current.next;
+					}
+					return change;
+				}
+			};
+		}
+
+		/**
+		 * Skips the given number of pending changes.
+		 *
+		 * @throws IllegalArgumentException if there are less pending changes.
+		 */
+		void skip(long count) {
+			if (count > pending()) {
+				throw new IllegalArgumentException("Only " + pending() + " pending changes: " + count);
+			}// else
+			for (long i = 0; i < count; i++) {
+				advance();
+			}
+		}
+
+		/**
+		 * Moves this cursor to the next change, discarding the segments read by every cursor.
+		 */
+		private void advance() {
+			final int offset = (int) (position - segment.first);
+			position++;
+			if (offset + 1 == segmentSize) {
+				final boolean wasHead = segment == head;
+				segment = segment.next;
+				if (wasHead) {
+					truncate();
+				}
+			}
+		}
+
+		/**
+		 * Reads all the pending changes.
+		 *
+		 * @param consumer The consumer of the changes.
+		 * @return the number of changes read.
+		 * @throws IllegalStateException if this cursor is closed.
+		 */
+		public int drain(Consumer<? super Change<K, V>> consumer) {
+			int count = 0;
+			Change<K, V> change;
+			while ((change = poll()) != null) {
+				consumer.accept(change);
+				count++;
+			}
+			return count;
+		}
+
+		/**
+		 * Closes this cursor, allowing the journal to discard the changes it did not read.
+		 */
+		@Override
+		public void close() {
+			if (!closed) {
+				closed = true;
+				cursors.remove(this);
+				truncate();
+			}
+		}
+	}
+
+	private static final class Segment {
+
+		long first;
+
+		final byte[] operations;
+
+		final Object[] keys;
+
+		final Object[] values;
+
+		Segment next;
+
+		Segment(long first, int size) {
+			this.first = first;
+			operations = new byte[size];
+			keys = new Object[size];
+			values = new Object[size];
+		}
+	}
+}
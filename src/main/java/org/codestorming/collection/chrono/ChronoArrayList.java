@@ -11,27 +11,48 @@
  */
 package org.codestorming.collection.chrono;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Objects;
+import java.util.function.Predicate;
+
+import org.codestorming.collection.Footprints;
+import org.codestorming.collection.MemoryFootprint;
 
 /**
  * {@link ArrayList} that implements {@link ChronoCollection}.
+ * <p>
+ * The {@link #added() added} and {@link #removed() removed} lists count the occurrences of each element, so that
+ * tracking a modification costs a constant time whatever the number of changes since the last reset. In these lists,
+ * the occurrences of an element are adjacent and the distinct elements are in the order they were first tracked.
  *
  * @author Thaedrik [thaedrik@codestorming.org]
  * @since 1.1
  */
-public class ChronoArrayList<E> extends ArrayList<E> implements ChronoList<E> {
+public class ChronoArrayList<E> extends ArrayList<E> implements ChronoList<E>, MemoryFootprint {
 
 	/**
 	 * Contains the elements added to this list that were not originally (since the last reset) in this list.
 	 */
-	protected final ArrayList<E> added = new ArrayList<>();
+	protected List<E> added = new MultisetList<>();
 
 	/**
 	 * Contains the elements removed from the original (since the last reset) list.
 	 */
-	protected final ArrayList<E> removed = new ArrayList<>();
+	protected List<E> removed = new MultisetList<>();
+
+	private static final int DEFAULT_CAPACITY = 10;
+
+	private transient ChangeJournal<E, Void> journal;
+
+	/**
+	 * Length of the backing array of this list, {@code -1} while it is the shared empty array of a list created
+	 * without capacity.
+	 */
+	private transient int capacity = -1;
 
 	/**
 	 * Creates a new {@code ChronoArrayList} initialized with the given element.
@@ -79,52 +100,181 @@ public class ChronoArrayList<E> extends ArrayList<E> implements ChronoList<E> {
 		ChronoHelper.reset(added, removed);
 	}
 
+	/**
+	 * Returns the journal of the changes applied to this list, created on the first call.
+	 * <p>
+	 * The changes are only recorded once the journal is created. The journal is neither serialized nor shared with the
+	 * clones of this list.
+	 *
+	 * @return the journal of the changes applied to this list.
+	 */
+	public ChangeJournal<E, Void> journal() {
+		if (journal == null) {
+			journal = new ChangeJournal<>();
+		}
+		return journal;
+	}
+
+	private void trackAdded(E e) {
+		ChronoHelper.updateAdded(added, removed, e);
+		if (journal != null) {
+			journal.record(ChangeJournal.Operation.ADD, e, null);
+		}
+	}
+
+	private void trackRemoved(E e) {
+		ChronoHelper.updateRemoved(added, removed, e);
+		if (journal != null) {
+			journal.record(ChangeJournal.Operation.REMOVE, e, null);
+		}
+	}
+
+	/**
+	 * Follows the growth policy of {@link ArrayList} for an insertion requiring the given capacity.
+	 */
+	private void growCapacity(int minCapacity) {
+		if (capacity < 0) {
+			capacity = Math.max(DEFAULT_CAPACITY, minCapacity);
+		} else if (minCapacity > capacity) {
+			capacity = Math.max(capacity + (capacity >> 1), minCapacity);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The capacity of an {@link ArrayList} is not observable, it is computed by replaying the growth policy of {@code
+	 * ArrayList} on each insertion.
+	 */
+	@Override
+	public int capacity() {
+		return Math.max(capacity, 0);
+	}
+
+	@Override
+	public void ensureCapacity(int minCapacity) {
+		if (capacity >= 0 || minCapacity > DEFAULT_CAPACITY) {
+			growCapacity(minCapacity);
+		}
+		super.ensureCapacity(minCapacity);
+	}
+
+	@Override
+	public void trimToSize() {
+		super.trimToSize();
+		capacity = size();
+	}
+
+	@Override
+	public long shallowBytes() {
+		return Footprints.objectBytes(4, 12);
+	}
+
+	@Override
+	public long retainedBytes() {
+		return shallowBytes() + Footprints.referenceArrayBytes(capacity()) + sideStructureBytes();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The side structures of a {@code ChronoArrayList} are its {@code added} and {@code removed} lists.
+	 */
+	@Override
+	public long sideStructureBytes() {
+		return ((MultisetList<E>) added).retainedBytes() + ((MultisetList<E>) removed).retainedBytes();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The clone tracks its own changes: its {@code added} and {@code removed} lists are copies of the ones of this
+	 * list. The change journal of this list is not shared with the clone.
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public Object clone() {
+		final ChronoArrayList<E> clone = (ChronoArrayList<E>) super.clone();
+		clone.added = new MultisetList<>(added);
+		clone.removed = new MultisetList<>(removed);
+		clone.journal = null;
+		// The backing array of the clone is sized for its elements
+		clone.capacity = size();
+		return clone;
+	}
+
 	/**
 	 * Used internaly to add an element without modifying the added collection.
 	 * <p>
 	 * It is used only for initialization purposes.
 	 */
 	protected boolean _add(E e) {
+		growCapacity(size() + 1);
 		return super.add(e);
 	}
 
 	@Override
 	public boolean add(E e) {
-		ChronoHelper.updateAdded(added, removed, e);
+		trackAdded(e);
+		growCapacity(size() + 1);
 		return super.add(e);
 	}
 
 	@Override
 	public void add(int index, E element) {
-		ChronoHelper.updateAdded(added, removed, element);
+		trackAdded(element);
 		super.add(index, element);
+		growCapacity(size());
 	}
 
 	@Override
 	public boolean addAll(Collection<? extends E> c) {
-		ChronoHelper.updateAdded(added, removed, c);
-		return super.addAll(c);
+		for (E e : c) {
+			trackAdded(e);
+		}
+		if (super.addAll(c)) {
+			growCapacity(size());
+			return true;
+		} // else
+		return false;
 	}
 
 	@Override
 	public boolean addAll(int index, Collection<? extends E> c) {
-		ChronoHelper.updateAdded(added, removed, c);
-		return super.addAll(index, c);
+		for (E e : c) {
+			trackAdded(e);
+		}
+		if (super.addAll(index, c)) {
+			growCapacity(size());
+			return true;
+		} // else
+		return false;
 	}
 
 	@Override
 	public E set(int index, E element) {
 		E e = super.set(index, element);
-		ChronoHelper.updateAdded(added, removed, element);
-		ChronoHelper.updateRemoved(added, removed, e);
+		trackAdded(element);
+		trackRemoved(e);
 		return e;
 	}
 
+	@Override
+	public void clear() {
+		if (!isEmpty()) {
+			ChronoHelper.updateRemoved(added, removed, this);
+			if (journal != null) {
+				journal.record(ChangeJournal.Operation.CLEAR, null, null);
+			}
+		}
+		super.clear();
+	}
+
 	@Override
 	protected void removeRange(int fromIndex, int toIndex) {
 		if (fromIndex < toIndex) {
 			for (int i = fromIndex; i < toIndex; i++) {
-				ChronoHelper.updateRemoved(added, removed, get(i));
+				trackRemoved(get(i));
 			}
 		}
 		super.removeRange(fromIndex, toIndex);
@@ -134,29 +284,51 @@ public class ChronoArrayList<E> extends ArrayList<E> implements ChronoList<E> {
 	@SuppressWarnings("unchecked")
 	public boolean remove(Object o) {
 		if (super.remove(o)) {
-			ChronoHelper.updateRemoved(added, removed, (E) o);
+			trackRemoved((E) o);
 			return true;
 		} // else
 		return false;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Each element of this list is probed once in the given collection, and tracked as removed in the same pass.
+	 */
 	@Override
-	@SuppressWarnings("unchecked")
 	public boolean removeAll(Collection<?> c) {
-		final Collection<E> elements = ChronoHelper.elements(this, c, true);
-		if (super.removeAll(c)) {
-			ChronoHelper.updateRemoved(added, removed, elements);
-			return true;
-		} // else
-		return false;
+		Objects.requireNonNull(c);
+		return super.removeIf(ChronoHelper.trackingFilter(c::contains, this::trackRemoved));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Each element of this list is probed once in the given collection, and tracked as removed in the same pass.
+	 */
+	@Override
+	public boolean retainAll(Collection<?> c) {
+		Objects.requireNonNull(c);
+		return super.removeIf(ChronoHelper.trackingFilter(e -> !c.contains(e), this::trackRemoved));
+	}
+
+	@Override
+	public boolean removeIf(Predicate<? super E> filter) {
+		return super.removeIf(ChronoHelper.trackingFilter(filter, this::trackRemoved));
 	}
 
 	@Override
 	public E remove(int index) {
 		E element = super.remove(index);
 		if (element != null) {
-			ChronoHelper.updateRemoved(added, removed, element);
+			trackRemoved(element);
 		}
 		return element;
 	}
+
+	private void readObject(ObjectInputStream s) throws IOException, ClassNotFoundException {
+		s.defaultReadObject();
+		// The backing array of the deserialized list is sized for its elements
+		capacity = size();
+	}
 }
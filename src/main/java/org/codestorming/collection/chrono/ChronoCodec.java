@@ -0,0 +1,668 @@
+/*
+ * Copyright (c) 2012-2018 Codestorming.org
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Codestorming - initial API and implementation
+ */
+package org.codestorming.collection.chrono;
+
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Binary encoding of the changes of the chrono maps and collections, and application of the encoded changes to a
+ * target map or collection.
+ * <p>
+ * A delta is encoded as a stream of records:
+ * <ul>
+ * <li>a header: the {@link #VERSION version} byte, then a flags byte (whether the records have a value, whether the
+ * keys are dictionary-coded);</li>
+ * <li>the records, each starting with its operation byte (the ordinal of the {@link ChangeJournal.Operation}):
+ * {@code ADD} followed by the key (or element) and, for the maps, the value; {@code REMOVE} followed by the key;
+ * {@code CLEAR};</li>
+ * <li>the end byte.</li>
+ * </ul>
+ * The keys and values are written by the given {@link Serializer serializers}, which may use the {@link
+ * #writeVarInt(DataOutput, int) varints} to write compact lengths.
+ * <p>
+ * When the dictionary is enabled, the keys are written once, then referenced by their index in the dictionary. The
+ * dictionary is kept between the deltas: a codec encoding deltas must be paired with a codec decoding them, in the same
+ * order. Its size is bounded, the keys encountered once it is full being always written. The keys added to the
+ * dictionary by a delta whose encoding fails are removed from it. If a delta cannot be decoded, or is not decoded, the
+ * dictionaries of both codecs must be {@link #resetDictionary() reset}.
+ * <p>
+ * <strong>Note that this implementation is not synchronized.</strong>
+ *
+ * @param <K> Type of the keys (or elements).
+ * @param <V> Type of the values ({@link Void} for the collections).
+ * @author Thaedrik [thaedrik@codestorming.org]
+ * @since 2.1
+ */
+public class ChronoCodec<K, V> {
+
+	/**
+	 * Version of the encoding.
+	 */
+	public static final int VERSION = 1;
+
+	/**
+	 * Serializer of the {@link String strings} (possibly {@code null}), as their length in UTF-8 followed by their
+	 * UTF-8 bytes.
+	 */
+	public static final Serializer<String> STRING = new Serializer<String>() {
+		@Override
+		public void write(DataOutput out, String value) throws IOException {
+			if (value == null) {
+				writeVarInt(out, 0);
+			} else {
+				final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+				writeVarInt(out, bytes.length + 1);
+				out.write(bytes);
+			}
+		}
+
+		@Override
+		public String read(DataInput in) throws IOException {
+			final int length = readVarInt(in) - 1;
+			if (length < 0) {
+				return null;
+			}// else
+			final byte[] bytes = new byte[length];
+			in.readFully(bytes);
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+	};
+
+	/**
+	 * Serializer of the {@link Integer integers} (possibly {@code null}), as a presence varint followed by their zigzag
+	 * varint.
+	 */
+	public static final Serializer<Integer> INTEGER = new Serializer<Integer>() {
+		@Override
+		public void write(DataOutput out, Integer value) throws IOException {
+			if (writePresence(out, value)) {
+				writeVarInt(out, value << 1 ^ value >> 31);
+			}
+		}
+
+		@Override
+		public Integer read(DataInput in) throws IOException {
+			if (!readPresence(in)) {
+				return null;
+			}// else
+			final int zigzag = readVarInt(in);
+			return zigzag >>> 1 ^ -(zigzag & 1);
+		}
+	};
+
+	/**
+	 * Serializer of the {@link Long longs} (possibly {@code null}), as a presence varint followed by their zigzag
+	 * varint.
+	 */
+	public static final Serializer<Long> LONG = new Serializer<Long>() {
+		@Override
+		public void write(DataOutput out, Long value) throws IOException {
+			if (writePresence(out, value)) {
+				writeVarLong(out, value << 1 ^ value >> 63);
+			}
+		}
+
+		@Override
+		public Long read(DataInput in) throws IOException {
+			if (!readPresence(in)) {
+				return null;
+			}// else
+			final long zigzag = readVarLong(in);
+			return zigzag >>> 1 ^ -(zigzag & 1);
+		}
+	};
+
+	private static final int FLAG_VALUES = 1;
+
+	private static final int FLAG_DICTIONARY = 2;
+
+	private static final int ADD = ChangeJournal.Operation.ADD.ordinal();
+
+	private static final int REMOVE = ChangeJournal.Operation.REMOVE.ordinal();
+
+	private static final int CLEAR = ChangeJournal.Operation.CLEAR.ordinal();
+
+	private static final int END = 0xFF;
+
+	private final Serializer<K> keys;
+
+	private final Serializer<V> values;
+
+	private final int dictionarySize;
+
+	/**
+	 * Index of the keys in the encoding dictionary.
+	 */
+	private final Map<Object, Integer> encodingDictionary;
+
+	/**
+	 * Keys of the decoding dictionary.
+	 */
+	private final List<Object> decodingDictionary;
+
+	/**
+	 * Creates a new {@code ChronoCodec} for maps, without dictionary.
+	 *
+	 * @param keys The serializer of the keys.
+	 * @param values The serializer of the values.
+	 */
+	public ChronoCodec(Serializer<K> keys, Serializer<V> values) {
+		this(keys, values, 0);
+	}
+
+	/**
+	 * Creates a new {@code ChronoCodec} for maps.
+	 *
+	 * @param keys The serializer of the keys.
+	 * @param values The serializer of the values.
+	 * @param dictionarySize Maximum number of keys in the dictionary, {@code 0} to disable it.
+	 * @throws IllegalArgumentException if {@code dictionarySize < 0}.
+	 */
+	public ChronoCodec(Serializer<K> keys, Serializer<V> values, int dictionarySize) {
+		this(dictionarySize, keys, Objects.requireNonNull(values));
+	}
+
+	private ChronoCodec(int dictionarySize, Serializer<K> keys, Serializer<V> values) {
+		if (dictionarySize < 0) {
+			throw new IllegalArgumentException("The dictionary size cannot be negative: " + dictionarySize);
+		}// else
+		this.keys = Objects.requireNonNull(keys);
+		this.values = values;
+		this.dictionarySize = dictionarySize;
+		encodingDictionary = dictionarySize > 0 ? new HashMap<>() : null;
+		decodingDictionary = dictionarySize > 0 ? new ArrayList<>() : null;
+	}
+
+	/**
+	 * Creates a new {@code ChronoCodec} for collections.
+	 *
+	 * @param elements The serializer of the elements.
+	 * @param dictionarySize Maximum number of elements in the dictionary, {@code 0} to disable it.
+	 * @return a new {@code ChronoCodec} for collections.
+	 * @throws IllegalArgumentException if {@code dictionarySize < 0}.
+	 */
+	public static <E> ChronoCodec<E, Void> forCollections(Serializer<E> elements, int dictionarySize) {
+		return new ChronoCodec<>(dictionarySize, elements, null);
+	}
+
+	/**
+	 * Writes the given int as an unsigned varint: 7 bits per byte, the high bit indicating that another byte follows.
+	 *
+	 * @param out The output.
+	 * @param value The value to write.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public static void writeVarInt(DataOutput out, int value) throws IOException {
+		while ((value & ~0x7F) != 0) {
+			out.writeByte(value & 0x7F | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+
+	/**
+	 * Reads an unsigned varint written by {@link #writeVarInt(DataOutput, int)}.
+	 *
+	 * @param in The input.
+	 * @return the value read.
+	 * @throws IOException if an I/O error occurs or if the varint is malformed.
+	 */
+	public static int readVarInt(DataInput in) throws IOException {
+		int value = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			final int b = in.readUnsignedByte();
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("Malformed varint");
+	}
+
+	/**
+	 * Writes whether the given value is present: {@code 0} for {@code null}, {@code 1} otherwise.
+	 *
+	 * @return {@code true} if the value is not {@code null}.
+	 */
+	private static boolean writePresence(DataOutput out, Object value) throws IOException {
+		writeVarInt(out, value == null ? 0 : 1);
+		return value != null;
+	}
+
+	/**
+	 * Reads the presence varint written by {@link #writePresence(DataOutput, Object)}.
+	 *
+	 * @return {@code true} if the value is not {@code null}.
+	 */
+	private static boolean readPresence(DataInput in) throws IOException {
+		final int presence = readVarInt(in);
+		if (presence > 1) {
+			throw new IOException("Malformed presence flag: " + presence);
+		}// else
+		return presence == 1;
+	}
+
+	/**
+	 * Writes the given long as an unsigned varint.
+	 *
+	 * @param out The output.
+	 * @param value The value to write.
+	 * @throws IOException if an I/O error occurs.
+	 * @see #writeVarInt(DataOutput, int)
+	 */
+	public static void writeVarLong(DataOutput out, long value) throws IOException {
+		while ((value & ~0x7FL) != 0) {
+			out.writeByte((int) value & 0x7F | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte((int) value);
+	}
+
+	/**
+	 * Reads an unsigned varint written by {@link #writeVarLong(DataOutput, long)}.
+	 *
+	 * @param in The input.
+	 * @return the value read.
+	 * @throws IOException if an I/O error occurs or if the varint is malformed.
+	 */
+	public static long readVarLong(DataInput in) throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			final int b = in.readUnsignedByte();
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("Malformed varint");
+	}
+
+	/**
+	 * Clears the dictionary of this codec.
+	 */
+	public void resetDictionary() {
+		if (encodingDictionary != null) {
+			encodingDictionary.clear();
+			decodingDictionary.clear();
+		}
+	}
+
+	/**
+	 * Encodes the changes of the given map since its last reset: the removal of the keys no longer mapped, then the
+	 * mappings added or changed.
+	 *
+	 * @param map The changed map.
+	 * @param out The output.
+	 * @throws IOException if an I/O error occurs.
+	 * @throws IllegalStateException if this codec is for collections.
+	 */
+	public void encode(ChronoMap<? extends K, ? extends V> map, DataOutput out) throws IOException {
+		checkValues(true);
+		final int dictionaryMark = dictionaryMark();
+		boolean encoded = false;
+		try {
+			writeHeader(out);
+			final Map<? extends K, ? extends V> added = map.added();
+			for (K key : map.removed().keySet()) {
+				if (!added.containsKey(key)) {
+					out.writeByte(REMOVE);
+					writeKey(out, key);
+				}
+			}
+			for (Map.Entry<? extends K, ? extends V> entry : added.entrySet()) {
+				out.writeByte(ADD);
+				writeKey(out, entry.getKey());
+				values.write(out, entry.getValue());
+			}
+			out.writeByte(END);
+			encoded = true;
+		} finally {
+			if (!encoded) {
+				rollbackDictionary(dictionaryMark);
+			}
+		}
+	}
+
+	/**
+	 * Encodes the changes of the given collection since its last reset: the removed elements, then the added ones.
+	 *
+	 * @param collection The changed collection.
+	 * @param out The output.
+	 * @throws IOException if an I/O error occurs.
+	 * @throws IllegalStateException if this codec is for maps.
+	 */
+	public void encode(ChronoCollection<? extends K> collection, DataOutput out) throws IOException {
+		checkValues(false);
+		final int dictionaryMark = dictionaryMark();
+		boolean encoded = false;
+		try {
+			writeHeader(out);
+			for (K element : collection.removed()) {
+				out.writeByte(REMOVE);
+				writeKey(out, element);
+			}
+			for (K element : collection.added()) {
+				out.writeByte(ADD);
+				writeKey(out, element);
+			}
+			out.writeByte(END);
+			encoded = true;
+		} finally {
+			if (!encoded) {
+				rollbackDictionary(dictionaryMark);
+			}
+		}
+	}
+
+	/**
+	 * Encodes the pending changes of the given journal cursor, in their order, including the clearings.
+	 * <p>
+	 * The cursor is only moved past the changes once the whole delta has been written: if the encoding fails, the
+	 * changes remain pending.
+	 *
+	 * @param cursor The cursor from which the changes are read.
+	 * @param out The output.
+	 * @return the number of changes encoded.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public int encode(ChangeJournal<? extends K, ? extends V>.Cursor cursor, DataOutput out) throws IOException {
+		final int dictionaryMark = dictionaryMark();
+		boolean encoded = false;
+		int count = 0;
+		try {
+			writeHeader(out);
+			final Iterator<? extends ChangeJournal.Change<? extends K, ? extends V>> changes = cursor.peek();
+			while (changes.hasNext()) {
+				final ChangeJournal.Change<? extends K, ? extends V> change = changes.next();
+				final int operation = change.getOperation().ordinal();
+				out.writeByte(operation);
+				if (operation != CLEAR) {
+					writeKey(out, change.getKey());
+					if (operation == ADD && values != null) {
+						values.write(out, change.getValue());
+					}
+				}
+				count++;
+			}
+			out.writeByte(END);
+			encoded = true;
+		} finally {
+			if (!encoded) {
+				rollbackDictionary(dictionaryMark);
+			}
+		}
+		cursor.skip(count);
+		return count;
+	}
+
+	/**
+	 * Encodes the changes of the given map in the given buffer.
+	 *
+	 * @param map The changed map.
+	 * @param buffer The buffer.
+	 * @throws IOException if a serializer fails.
+	 * @throws java.nio.BufferOverflowException if the buffer is too small.
+	 * @see #encode(ChronoMap, DataOutput)
+	 */
+	public void encode(ChronoMap<? extends K, ? extends V> map, ByteBuffer buffer) throws IOException {
+		encode(map, output(buffer));
+	}
+
+	/**
+	 * Encodes the changes of the given collection in the given buffer.
+	 *
+	 * @param collection The changed collection.
+	 * @param buffer The buffer.
+	 * @throws IOException if a serializer fails.
+	 * @throws java.nio.BufferOverflowException if the buffer is too small.
+	 * @see #encode(ChronoCollection, DataOutput)
+	 */
+	public void encode(ChronoCollection<? extends K> collection, ByteBuffer buffer) throws IOException {
+		encode(collection, output(buffer));
+	}
+
+	/**
+	 * Decodes a delta and applies it to the given map.
+	 *
+	 * @param in The input.
+	 * @param target The map to patch.
+	 * @return the number of records applied.
+	 * @throws IOException if an I/O error occurs or if the delta is malformed.
+	 * @throws IllegalStateException if this codec is for collections.
+	 */
+	public int apply(DataInput in, Map<K, V> target) throws IOException {
+		checkValues(true);
+		readHeader(in);
+		int count = 0;
+		for (int operation; (operation = in.readUnsignedByte()) != END; count++) {
+			if (operation == ADD) {
+				final K key = readKey(in);
+				target.put(key, values.read(in));
+			} else if (operation == REMOVE) {
+				target.remove(readKey(in));
+			} else if (operation == CLEAR) {
+				target.clear();
+			} else {
+				throw new IOException("Unknown operation: " + operation);
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Decodes a delta and applies it to the given collection.
+	 *
+	 * @param in The input.
+	 * @param target The collection to patch.
+	 * @return the number of records applied.
+	 * @throws IOException if an I/O error occurs or if the delta is malformed.
+	 * @throws IllegalStateException if this codec is for maps.
+	 */
+	public int apply(DataInput in, Collection<K> target) throws IOException {
+		checkValues(false);
+		readHeader(in);
+		int count = 0;
+		for (int operation; (operation = in.readUnsignedByte()) != END; count++) {
+			if (operation == ADD) {
+				target.add(readKey(in));
+			} else if (operation == REMOVE) {
+				target.remove(readKey(in));
+			} else if (operation == CLEAR) {
+				target.clear();
+			} else {
+				throw new IOException("Unknown operation: " + operation);
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Decodes a delta from the given buffer and applies it to the given map.
+	 *
+	 * @param buffer The buffer.
+	 * @param target The map to patch.
+	 * @return the number of records applied.
+	 * @throws IOException if the delta is malformed or truncated.
+	 * @see #apply(DataInput, Map)
+	 */
+	public int apply(ByteBuffer buffer, Map<K, V> target) throws IOException {
+		return apply(input(buffer), target);
+	}
+
+	/**
+	 * Decodes a delta from the given buffer and applies it to the given collection.
+	 *
+	 * @param buffer The buffer.
+	 * @param target The collection to patch.
+	 * @return the number of records applied.
+	 * @throws IOException if the delta is malformed or truncated.
+	 * @see #apply(DataInput, Collection)
+	 */
+	public int apply(ByteBuffer buffer, Collection<K> target) throws IOException {
+		return apply(input(buffer), target);
+	}
+
+	private void checkValues(boolean expected) {
+		if ((values != null) != expected) {
+			throw new IllegalStateException(expected ? "This codec is for collections" : "This codec is for maps");
+		}
+	}
+
+	private int flags() {
+		return (values != null ? FLAG_VALUES : 0) | (encodingDictionary != null ? FLAG_DICTIONARY : 0);
+	}
+
+	private void writeHeader(DataOutput out) throws IOException {
+		out.writeByte(VERSION);
+		out.writeByte(flags());
+	}
+
+	private void readHeader(DataInput in) throws IOException {
+		final int version = in.readUnsignedByte();
+		if (version != VERSION) {
+			throw new IOException("Unsupported version: " + version);
+		}// else
+		final int flags = in.readUnsignedByte();
+		if (flags != flags()) {
+			throw new IOException("Incompatible flags: " + flags);
+		}
+	}
+
+	/**
+	 * Returns the size of the encoding dictionary, before the encoding of a delta.
+	 */
+	private int dictionaryMark() {
+		return encodingDictionary == null ? 0 : encodingDictionary.size();
+	}
+
+	/**
+	 * Removes the keys added to the encoding dictionary since the given mark, after a failed encoding.
+	 */
+	private void rollbackDictionary(int mark) {
+		if (encodingDictionary != null && encodingDictionary.size() > mark) {
+			encodingDictionary.values().removeIf(index -> index >= mark);
+		}
+	}
+
+	/**
+	 * Writes the given key: its index in the dictionary plus one, or {@code 0} followed by the key.
+	 */
+	private void writeKey(DataOutput out, K key) throws IOException {
+		if (encodingDictionary != null) {
+			final Integer index = encodingDictionary.get(key);
+			if (index != null) {
+				writeVarInt(out, index + 1);
+				return;
+			}// else
+			writeVarInt(out, 0);
+			if (encodingDictionary.size() < dictionarySize) {
+				encodingDictionary.put(key, encodingDictionary.size());
+			}
+		}
+		keys.write(out, key);
+	}
+
+	@SuppressWarnings("unchecked")
+	private K readKey(DataInput in) throws IOException {
+		if (decodingDictionary != null) {
+			final int index = readVarInt(in) - 1;
+			if (index >= 0) {
+				if (index >= decodingDictionary.size()) {
+					throw new IOException("Unknown dictionary index: " + index);
+				}// else
+				return (K) decodingDictionary.get(index);
+			}// else
+			final K key = keys.read(in);
+			if (decodingDictionary.size() < dictionarySize) {
+				decodingDictionary.add(key);
+			}
+			return key;
+		}// else
+		return keys.read(in);
+	}
+
+	private static DataOutput output(ByteBuffer buffer) {
+		return new DataOutputStream(new OutputStream() {
+			@Override
+			public void write(int b) {
+				buffer.put((byte) b);
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) {
+				buffer.put(b, off, len);
+			}
+		});
+	}
+
+	private static DataInput input(ByteBuffer buffer) {
+		return new DataInputStream(new InputStream() {
+			@Override
+			public int read() {
+				return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+			}
+
+			@Override
+			public int read(byte[] b, int off, int len) {
+				if (len == 0) {
+					return 0;
+				} else if (!buffer.hasRemaining()) {
+					return -1;
+				}// else
+				final int read = Math.min(len, buffer.remaining());
+				buffer.get(b, off, read);
+				return read;
+			}
+		});
+	}
+
+	/**
+	 * Writes and reads the keys, elements or values of a delta.
+	 *
+	 * @param <T> Type of the serialized objects.
+	 */
+	public interface Serializer<T> {
+
+		/**
+		 * Writes the given object.
+		 *
+		 * @param out The output.
+		 * @param value The object to write.
+		 * @throws IOException if an I/O error occurs.
+		 */
+		void write(DataOutput out, T value) throws IOException;
+
+		/**
+		 * Reads an object written by {@link #write(DataOutput, Object)}.
+		 *
+		 * @param in The input.
+		 * @return the object read.
+		 * @throws IOException if an I/O error occurs.
+		 */
+		T read(DataInput in) throws IOException;
+	}
+}
@@ -11,23 +11,67 @@
  */
 package org.codestorming.collection.chrono;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import org.codestorming.collection.Footprints;
+import org.codestorming.collection.MemoryFootprint;
 
 /**
  * A {@code ChronoHashMap} is a {@link HashMap} implementing {@link ChronoMap}.
+ * <p>
+ * A {@link #snapshot() snapshot} of the map can be read by other threads while the map is being modified. The map
+ * itself, and the creation of the snapshots, remain confined to a single writer thread.
  *
  * @author Thaedrik [thaedrik@codestorming.org]
  * @since 1.1
  */
-public class ChronoHashMap<K, V> extends HashMap<K, V> implements ChronoMap<K, V> {
+public class ChronoHashMap<K, V> extends HashMap<K, V> implements ChronoMap<K, V>, MemoryFootprint {
+
+	protected Map<K, V> added = new HashMap<>();
+
+	protected Map<K, V> removed = new HashMap<>();
+
+	private transient ChangeJournal<K, V> journal;
+
+	/**
+	 * The largest size this map reached, the hash table never shrinking.
+	 */
+	private transient int maxSize;
+
+	private transient EntrySet entrySetView;
+
+	private transient KeySet keySetView;
 
-	protected final Map<K, V> added = new HashMap<>();
+	private transient Values valuesView;
 
-	protected final Map<K, V> removed = new HashMap<>();
+	/**
+	 * Guards the reads of the live map by the snapshots, created with the first snapshot.
+	 */
+	private transient StampedLock lock;
+
+	/**
+	 * Stamp of the write lock held by the current modification, {@code 0} if none.
+	 */
+	private transient long writeStamp;
+
+	/**
+	 * The snapshots still reading this map, {@code null} if there is none.
+	 */
+	private transient List<WeakReference<ChronoMapSnapshot<K, V>>> snapshots;
 
 	public static <K, V> ChronoHashMap<K, V> create(K key, V value) {
 		ChronoHashMap<K, V> map = new ChronoHashMap<>();
@@ -75,23 +119,258 @@ public class ChronoHashMap<K, V> extends HashMap<K, V> implements ChronoMap<K, V
 
 	@Override
 	public void reset() {
-		added.clear();
-		removed.clear();
+		final long stamp = beginWrite();
+		try {
+			if (snapshots != null) {
+				for (K key : added.keySet()) {
+					preserve(key);
+				}
+				for (K key : removed.keySet()) {
+					preserve(key);
+				}
+			}
+			added.clear();
+			removed.clear();
+		} finally {
+			endWrite(stamp);
+		}
 	}
 
-	protected void _put(K key, V value) {
-		super.put(key, value);
+	/**
+	 * Returns an immutable snapshot of this map, including its {@code added} and {@code removed} maps.
+	 * <p>
+	 * The snapshot is created in constant time and shares the mappings of this map: each subsequent modification of a
+	 * key first copies the previous state of that key in the open snapshots, and the modifications of all the mappings
+	 * (such as {@link #clear()}) copy the snapshots entirely. The snapshot can be read concurrently by any thread
+	 * without blocking the writes on this map. Its first {@code size()}, {@code entrySet()}, {@code added()} or {@code
+	 * removed()} call copies the mappings: if this map keeps being modified during the copy, the copy is made by the
+	 * writer on its next modification instead.
+	 * <p>
+	 * The snapshots must not be read by the functions given to the methods of this map (such as {@link
+	 * #compute(Object, BiFunction)}), which run while this map is locked for writing.
+	 *
+	 * @return an immutable snapshot of this map.
+	 */
+	public ChronoMap<K, V> snapshot() {
+		if (lock == null) {
+			lock = new StampedLock();
+		}
+		if (snapshots == null) {
+			snapshots = new ArrayList<>();
+		}
+		final ChronoMapSnapshot<K, V> snapshot = new ChronoMapSnapshot<>(this, lock);
+		snapshots.add(new WeakReference<>(snapshot));
+		return snapshot;
+	}
+
+	/**
+	 * Returns the live map read by the snapshots for the given {@link ChronoMapSnapshot#BASE BASE}, {@link
+	 * ChronoMapSnapshot#ADDED ADDED} or {@link ChronoMapSnapshot#REMOVED REMOVED} map.
+	 */
+	Map<K, V> liveMap(int which) {
+		return which == ChronoMapSnapshot.BASE ? this : which == ChronoMapSnapshot.ADDED ? added : removed;
+	}
+
+	/**
+	 * Returns the value of the given key in the given live map, or {@link ChronoMapSnapshot#ABSENT}.
+	 */
+	Object liveValue(int which, Object key) {
+		final Map<K, V> map = liveMap(which);
+		final V value = map.get(key);
+		return value != null || map.containsKey(key) ? value : ChronoMapSnapshot.ABSENT;
+	}
+
+	/**
+	 * Locks this map for writing if it has open snapshots and is not already locked.
+	 *
+	 * @return the stamp to give to {@link #endWrite(long)}.
+	 */
+	private long beginWrite() {
+		if (snapshots == null || writeStamp != 0L) {
+			return 0L;
+		}// else
+		return writeStamp = lock.writeLock();
+	}
+
+	/**
+	 * Locks this map for writing the given key, saving the state of the key in the open snapshots.
+	 *
+	 * @return the stamp to give to {@link #endWrite(long)}.
+	 */
+	private long beginWrite(Object key) {
+		final long stamp = beginWrite();
+		preserve(key);
+		return stamp;
 	}
 
+	/**
+	 * Locks this map for modifying all its mappings, materializing the open snapshots.
+	 *
+	 * @return the stamp to give to {@link #endWrite(long)}.
+	 */
+	private long beginBulkWrite() {
+		final long stamp = beginWrite();
+		if (snapshots != null) {
+			for (WeakReference<ChronoMapSnapshot<K, V>> reference : snapshots) {
+				final ChronoMapSnapshot<K, V> snapshot = reference.get();
+				if (snapshot != null) {
+					snapshot.materialize();
+				}
+			}
+			snapshots = null;
+		}
+		return stamp;
+	}
+
+	private void endWrite(long stamp) {
+		if (size() > maxSize) {
+			maxSize = size();
+		}
+		if (stamp != 0L) {
+			writeStamp = 0L;
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Saves the state of the given key in the open snapshots, forgetting the collected or materialized ones.
+	 */
+	private void preserve(Object key) {
+		if (snapshots != null) {
+			for (Iterator<WeakReference<ChronoMapSnapshot<K, V>>> iter = snapshots.iterator(); iter.hasNext(); ) {
+				final ChronoMapSnapshot<K, V> snapshot = iter.next().get();
+				if (snapshot == null || snapshot.isMaterialized()) {
+					iter.remove();
+				} else {
+					snapshot.preserve(key);
+				}
+			}
+			if (snapshots.isEmpty()) {
+				snapshots = null;
+			}
+		}
+	}
+
+	/**
+	 * Returns the journal of the changes applied to this map, created on the first call.
+	 * <p>
+	 * The changes are only recorded once the journal is created. The journal is neither serialized nor shared with the
+	 * clones of this map.
+	 *
+	 * @return the journal of the changes applied to this map.
+	 */
+	public ChangeJournal<K, V> journal() {
+		if (journal == null) {
+			journal = new ChangeJournal<>();
+		}
+		return journal;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The capacity is the estimated length of the hash table of this map. Since the table never shrinks, it is
+	 * estimated from the largest size this map reached.
+	 */
 	@Override
-	public V put(K key, V value) {
-		final V old = super.put(key, value);
-		if (objectEqual(removed.get(key), value)) {
+	public int capacity() {
+		return Footprints.hashTableLength(maxSize);
+	}
+
+	@Override
+	public long shallowBytes() {
+		return Footprints.objectBytes(12, 28);
+	}
+
+	@Override
+	public long retainedBytes() {
+		return shallowBytes() + Footprints.hashMapStorageBytes(size(), capacity()) + sideStructureBytes();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The side structures of a {@code ChronoHashMap} are its {@code added} and {@code removed} maps.
+	 */
+	@Override
+	public long sideStructureBytes() {
+		return Footprints.hashMapBytes(added.size()) + Footprints.hashMapBytes(removed.size());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The clone tracks its own changes: its {@code added} and {@code removed} maps are copies of the ones of this map.
+	 * The views, the snapshots and the change journal of this map are not shared with the clone.
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public Object clone() {
+		final ChronoHashMap<K, V> clone = (ChronoHashMap<K, V>) super.clone();
+		clone.added = new HashMap<>(added);
+		clone.removed = new HashMap<>(removed);
+		// The cached views are bound to this map
+		clone.entrySetView = null;
+		clone.keySetView = null;
+		clone.valuesView = null;
+		clone.journal = null;
+		clone.lock = null;
+		clone.writeStamp = 0L;
+		clone.snapshots = null;
+		// The table of the clone is sized for its mappings
+		clone.maxSize = size();
+		return clone;
+	}
+
+	protected void _put(K key, V value) {
+		final long stamp = beginWrite(key);
+		try {
+			super.put(key, value);
+		} finally {
+			endWrite(stamp);
+		}
+	}
+
+	/**
+	 * Tracks the mapping of the given key to the given value.
+	 */
+	private void trackPut(K key, V value) {
+		final V removedValue = removed.get(key);
+		if ((removedValue != null || removed.containsKey(key)) && objectEqual(removedValue, value)) {
 			removed.remove(key);
 		} else {
 			added.put(key, value);
 		}
-		return old;
+		if (journal != null) {
+			journal.record(ChangeJournal.Operation.ADD, key, value);
+		}
+	}
+
+	/**
+	 * Tracks the removal of the mapping of the given key to the given value.
+	 */
+	private void trackRemove(K key, V value) {
+		final V addedValue = added.get(key);
+		if ((addedValue != null || added.containsKey(key)) && objectEqual(addedValue, value)) {
+			added.remove(key);
+		} else {
+			removed.put(key, value);
+		}
+		if (journal != null) {
+			journal.record(ChangeJournal.Operation.REMOVE, key, value);
+		}
+	}
+
+	@Override
+	public V put(K key, V value) {
+		final long stamp = beginWrite(key);
+		try {
+			final V old = super.put(key, value);
+			trackPut(key, value);
+			return old;
+		} finally {
+			endWrite(stamp);
+		}
 	}
 
 	@Override
@@ -104,43 +383,276 @@ public class ChronoHashMap<K, V> extends HashMap<K, V> implements ChronoMap<K, V
 	@Override
 	@SuppressWarnings("unchecked")
 	public V remove(Object key) {
-		final boolean contained = containsKey(key);
-		final V value = super.remove(key);
-		if (contained) {
-			if (objectEqual(added.get(key), value)) {
-				added.remove(key);
-			} else {
-				removed.put((K) key, value);
+		final long stamp = beginWrite(key);
+		try {
+			final boolean contained = containsKey(key);
+			final V value = super.remove(key);
+			if (contained) {
+				trackRemove((K) key, value);
+			}
+			return value;
+		} finally {
+			endWrite(stamp);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Only the mappings whose value actually changes are tracked.
+	 */
+	@Override
+	public void replaceAll(BiFunction<? super K, ? super V, ? extends V> function) {
+		Objects.requireNonNull(function);
+		final long stamp = beginWrite();
+		try {
+			for (Map.Entry<K, V> entry : super.entrySet()) {
+				final V value = function.apply(entry.getKey(), entry.getValue());
+				if (!objectEqual(value, entry.getValue())) {
+					preserve(entry.getKey());
+					entry.setValue(value);
+					trackPut(entry.getKey(), value);
+				}
+			}
+		} finally {
+			endWrite(stamp);
+		}
+	}
+
+	@Override
+	public V putIfAbsent(K key, V value) {
+		final long stamp = beginWrite(key);
+		try {
+			// A key mapped to null is left unchanged when mapped to null again
+			final boolean changing = value != null || !super.containsKey(key);
+			final V old = super.putIfAbsent(key, value);
+			if (old == null && changing) {
+				trackPut(key, value);
 			}
+			return old;
+		} finally {
+			endWrite(stamp);
+		}
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public boolean remove(Object key, Object value) {
+		final long stamp = beginWrite(key);
+		try {
+			if (super.remove(key, value)) {
+				trackRemove((K) key, (V) value);
+				return true;
+			} // else
+			return false;
+		} finally {
+			endWrite(stamp);
 		}
-		return value;
+	}
+
+	@Override
+	public boolean replace(K key, V oldValue, V newValue) {
+		final long stamp = beginWrite(key);
+		try {
+			if (super.replace(key, oldValue, newValue)) {
+				trackPut(key, newValue);
+				return true;
+			} // else
+			return false;
+		} finally {
+			endWrite(stamp);
+		}
+	}
+
+	@Override
+	public V replace(K key, V value) {
+		final long stamp = beginWrite(key);
+		try {
+			final V old = super.replace(key, value);
+			// A null old value is ambiguous, the key may be absent or mapped to null
+			if (old != null || containsKey(key)) {
+				trackPut(key, value);
+			}
+			return old;
+		} finally {
+			endWrite(stamp);
+		}
+	}
+
+	@Override
+	public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+		Objects.requireNonNull(mappingFunction);
+		final long stamp = beginWrite(key);
+		try {
+			return super.computeIfAbsent(key, k -> {
+				final V value = mappingFunction.apply(k);
+				if (value != null) {
+					trackPut(k, value);
+				}
+				return value;
+			});
+		} finally {
+			endWrite(stamp);
+		}
+	}
+
+	@Override
+	public V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+		Objects.requireNonNull(remappingFunction);
+		final long stamp = beginWrite(key);
+		try {
+			return super.computeIfPresent(key, (k, old) -> {
+				final V value = remappingFunction.apply(k, old);
+				if (value == null) {
+					trackRemove(k, old);
+				} else {
+					trackPut(k, value);
+				}
+				return value;
+			});
+		} finally {
+			endWrite(stamp);
+		}
+	}
+
+	@Override
+	public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+		Objects.requireNonNull(remappingFunction);
+		final long stamp = beginWrite(key);
+		try {
+			return super.compute(key, (k, old) -> {
+				final V value = remappingFunction.apply(k, old);
+				if (value != null) {
+					trackPut(k, value);
+				} else if (old != null || containsKey(k)) {
+					trackRemove(k, old);
+				}
+				return value;
+			});
+		} finally {
+			endWrite(stamp);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Implemented with {@link #compute(Object, BiFunction)}, to look the key up only once.
+	 */
+	@Override
+	public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+		Objects.requireNonNull(value);
+		Objects.requireNonNull(remappingFunction);
+		return compute(key, (k, old) -> old == null ? value : remappingFunction.apply(old, value));
 	}
 
 	@Override
 	public void clear() {
-		if (!isEmpty()) {
-			for (K k : added.keySet()) {
-				super.remove(k);
+		final long stamp = beginBulkWrite();
+		try {
+			if (!isEmpty()) {
+				for (K k : added.keySet()) {
+					super.remove(k);
+				}
+				added.clear();
+				removed.putAll(this);
+				if (journal != null) {
+					journal.record(ChangeJournal.Operation.CLEAR, null, null);
+				}
 			}
-			added.clear();
-			removed.putAll(this);
+			super.clear();
+		} finally {
+			endWrite(stamp);
 		}
-		super.clear();
 	}
 
 	@Override
 	public Set<Map.Entry<K, V>> entrySet() {
-		return new EntrySet(super.entrySet());
+		final EntrySet entrySet = entrySetView;
+		return entrySet != null ? entrySet : (entrySetView = new EntrySet(super.entrySet()));
 	}
 
 	@Override
 	public Set<K> keySet() {
-		return new KeySet(super.keySet());
+		final KeySet keySet = keySetView;
+		return keySet != null ? keySet : (keySetView = new KeySet(super.keySet()));
 	}
 
 	@Override
 	public Collection<V> values() {
-		return new Values(super.values());
+		final Values values = valuesView;
+		return values != null ? values : (valuesView = new Values(super.values()));
+	}
+
+	/**
+	 * Removes the mappings matching the given filter, tracking their removal.
+	 */
+	private boolean removeMappings(Predicate<? super Map.Entry<K, V>> filter) {
+		Objects.requireNonNull(filter);
+		final long stamp = beginWrite();
+		try {
+			boolean modified = false;
+			for (Iterator<Map.Entry<K, V>> iter = super.entrySet().iterator(); iter.hasNext(); ) {
+				final Map.Entry<K, V> entry = iter.next();
+				if (filter.test(entry)) {
+					final K key = entry.getKey();
+					final V value = entry.getValue();
+					preserve(key);
+					iter.remove();
+					trackRemove(key, value);
+					modified = true;
+				}
+			}
+			return modified;
+		} finally {
+			endWrite(stamp);
+		}
+	}
+
+	private void readObject(ObjectInputStream s) throws IOException, ClassNotFoundException {
+		s.defaultReadObject();
+		// The table of the deserialized map is sized for its mappings
+		maxSize = size();
+	}
+
+	/**
+	 * Iterator over the mappings of this map, tracking the removals.
+	 */
+	abstract class ChronoIterator<T> implements Iterator<T> {
+
+		private final Iterator<Map.Entry<K, V>> iter = ChronoHashMap.super.entrySet().iterator();
+
+		private Map.Entry<K, V> last;
+
+		@Override
+		public boolean hasNext() {
+			return iter.hasNext();
+		}
+
+		@Override
+		public T next() {
+			last = iter.next();
+			return element(last);
+		}
+
+		abstract T element(Map.Entry<K, V> entry);
+
+		@Override
+		public void remove() {
+			if (last == null) {
+				throw new IllegalStateException();
+			}// else
+			final K key = last.getKey();
+			final V value = last.getValue();
+			final long stamp = beginWrite(key);
+			try {
+				iter.remove();
+				last = null;
+				trackRemove(key, value);
+			} finally {
+				endWrite(stamp);
+			}
+		}
 	}
 
 	final class EntrySet extends DelegatedSet<Map.Entry<K, V>> {
@@ -151,46 +663,33 @@ public class ChronoHashMap<K, V> extends HashMap<K, V> implements ChronoMap<K, V
 
 		@Override
 		public Iterator<Map.Entry<K, V>> iterator() {
-			final Iterator<Map.Entry<K, V>> iter = delegate.iterator();
-			return new Iterator<Map.Entry<K, V>>() {
-				Map.Entry<K, V> last;
-
-				@Override
-				public boolean hasNext() {
-					return iter.hasNext();
-				}
-
-				@Override
-				public Map.Entry<K, V> next() {
-					last = iter.next();
-					return last;
-				}
-
+			return new ChronoIterator<Map.Entry<K, V>>() {
 				@Override
-				public void remove() {
-					iter.remove();
-					if (added.containsKey(last.getKey())) {
-						added.remove(last.getKey());
-					} else {
-						removed.put(last.getKey(), last.getValue());
-					}
+				Map.Entry<K, V> element(Map.Entry<K, V> entry) {
+					return entry;
 				}
 			};
 		}
 
+		@Override
+		public boolean removeIf(Predicate<? super Map.Entry<K, V>> filter) {
+			return removeMappings(filter);
+		}
+
 		@Override
 		@SuppressWarnings("unchecked")
 		public boolean remove(Object o) {
-			final boolean remove = delegate.remove(o);
-			if (remove) {
-				final K key = ((Map.Entry<K, V>) o).getKey();
-				if (added.containsKey(key)) {
-					added.remove(key);
-				} else {
-					removed.put(key, ((Map.Entry<K, V>) o).getValue());
+			final long stamp = beginWrite(o instanceof Map.Entry ? ((Map.Entry<?, ?>) o).getKey() : null);
+			try {
+				final boolean remove = delegate.remove(o);
+				if (remove) {
+					final Map.Entry<K, V> entry = (Map.Entry<K, V>) o;
+					trackRemove(entry.getKey(), entry.getValue());
 				}
+				return remove;
+			} finally {
+				endWrite(stamp);
 			}
-			return remove;
 		}
 	}
 
@@ -202,44 +701,24 @@ public class ChronoHashMap<K, V> extends HashMap<K, V> implements ChronoMap<K, V
 
 		@Override
 		public Iterator<K> iterator() {
-			final Iterator<K> iter = delegate.iterator();
-			return new Iterator<K>() {
-				K last;
-
-				@Override
-				public boolean hasNext() {
-					return iter.hasNext();
-				}
-
-				@Override
-				public K next() {
-					last = iter.next();
-					return last;
-				}
-
+			return new ChronoIterator<K>() {
 				@Override
-				public void remove() {
-					final V value = get(last);
-					iter.remove();
-					if (added.containsKey(last)) {
-						added.remove(last);
-					} else {
-						removed.put(last, value);
-					}
+				K element(Map.Entry<K, V> entry) {
+					return entry.getKey();
 				}
 			};
 		}
 
 		@Override
-		@SuppressWarnings("unchecked")
+		public boolean removeIf(Predicate<? super K> filter) {
+			Objects.requireNonNull(filter);
+			return removeMappings(entry -> filter.test(entry.getKey()));
+		}
+
+		@Override
 		public boolean remove(Object o) {
-			final V value = get(o);
-			if (super.remove(o)) {
-				if (added.containsKey(o)) {
-					added.remove(o);
-				} else {
-					removed.put((K) o, value);
-				}
+			if (containsKey(o)) {
+				ChronoHashMap.this.remove(o);
 				return true;
 			} // else
 			return false;
@@ -254,27 +733,29 @@ public class ChronoHashMap<K, V> extends HashMap<K, V> implements ChronoMap<K, V
 
 		@Override
 		public Iterator<V> iterator() {
-			final Iterator<V> iter = delegate.iterator();
-
-			return new Iterator<V>() {
-				private V last;
-
+			return new ChronoIterator<V>() {
 				@Override
-				public boolean hasNext() {
-					return iter.hasNext();
+				V element(Map.Entry<K, V> entry) {
+					return entry.getValue();
 				}
+			};
+		}
 
-				@Override
-				public V next() {
-					last = iter.next();
-					return last;
-				}
+		@Override
+		public boolean removeIf(Predicate<? super V> filter) {
+			Objects.requireNonNull(filter);
+			return removeMappings(entry -> filter.test(entry.getValue()));
+		}
 
-				@Override
-				public void remove() {
-					throw new UnsupportedOperationException();
+		@Override
+		public boolean remove(Object o) {
+			for (Iterator<V> iter = iterator(); iter.hasNext(); ) {
+				if (objectEqual(o, iter.next())) {
+					iter.remove();
+					return true;
 				}
-			};
+			}
+			return false;
 		}
 	}
 }
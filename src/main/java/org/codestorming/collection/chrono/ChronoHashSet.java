@@ -11,28 +11,40 @@
  */
 package org.codestorming.collection.chrono;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
 
+import org.codestorming.collection.Footprints;
+import org.codestorming.collection.MemoryFootprint;
+
 /**
  * {@link HashSet} implementing {@link ChronoCollection}.
  *
  * @author Thaedrik [thaedrik@codestorming.org]
  * @since 1.1
  */
-public class ChronoHashSet<E> extends HashSet<E> implements ChronoSet<E> {
+public class ChronoHashSet<E> extends HashSet<E> implements ChronoSet<E>, MemoryFootprint {
 
 	/**
 	 * Contains the elements added to this set that were not originally (since the last reset) in this set.
 	 */
-	protected final HashSet<E> added = new HashSet<>();
+	protected HashSet<E> added = new HashSet<>();
 
 	/**
 	 * Contains the elements removed from the original (since the last reset) set.
 	 */
-	protected final HashSet<E> removed = new HashSet<>();
+	protected HashSet<E> removed = new HashSet<>();
+
+	private transient ChangeJournal<E, Void> journal;
+
+	/**
+	 * The largest size this set reached, the hash table never shrinking.
+	 */
+	private transient int maxSize;
 
 	/**
 	 * Creates a new {@code ChronoHashSet} initialized with the given element.
@@ -80,19 +92,106 @@ public class ChronoHashSet<E> extends HashSet<E> implements ChronoSet<E> {
 		ChronoHelper.reset(added, removed);
 	}
 
+	/**
+	 * Returns the journal of the changes applied to this set, created on the first call.
+	 * <p>
+	 * The changes are only recorded once the journal is created. The journal is neither serialized nor shared with the
+	 * clones of this set.
+	 *
+	 * @return the journal of the changes applied to this set.
+	 */
+	public ChangeJournal<E, Void> journal() {
+		if (journal == null) {
+			journal = new ChangeJournal<>();
+		}
+		return journal;
+	}
+
+	private void trackAdded(E e) {
+		if (size() > maxSize) {
+			maxSize = size();
+		}
+		ChronoHelper.updateAdded(added, removed, e);
+		if (journal != null) {
+			journal.record(ChangeJournal.Operation.ADD, e, null);
+		}
+	}
+
+	private void trackRemoved(E e) {
+		ChronoHelper.updateRemoved(added, removed, e);
+		if (journal != null) {
+			journal.record(ChangeJournal.Operation.REMOVE, e, null);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The capacity is the estimated length of the hash table of this set. Since the table never shrinks, it is
+	 * estimated from the largest size this set reached.
+	 */
+	@Override
+	public int capacity() {
+		return Footprints.hashTableLength(maxSize);
+	}
+
+	@Override
+	public long shallowBytes() {
+		return Footprints.objectBytes(4, 4);
+	}
+
+	@Override
+	public long retainedBytes() {
+		return shallowBytes() + Footprints.hashMapBytes(size(), capacity()) + sideStructureBytes();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The side structures of a {@code ChronoHashSet} are its {@code added} and {@code removed} sets.
+	 */
+	@Override
+	public long sideStructureBytes() {
+		return Footprints.hashSetBytes(added.size()) + Footprints.hashSetBytes(removed.size());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The clone tracks its own changes: its {@code added} and {@code removed} sets are copies of the ones of this set.
+	 * The change journal of this set is not shared with the clone.
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public Object clone() {
+		final ChronoHashSet<E> clone = (ChronoHashSet<E>) super.clone();
+		clone.added = new HashSet<>(added);
+		clone.removed = new HashSet<>(removed);
+		clone.journal = null;
+		// The table of the clone is sized for its elements
+		clone.maxSize = size();
+		return clone;
+	}
+
 	/**
 	 * Used internaly to add an element without modifying the added collection.
 	 * <p>
 	 * It is used only for initialization purposes.
 	 */
 	protected boolean _add(E e) {
-		return super.add(e);
+		if (super.add(e)) {
+			if (size() > maxSize) {
+				maxSize = size();
+			}
+			return true;
+		} // else
+		return false;
 	}
 
 	@Override
 	public boolean add(E e) {
 		if (super.add(e)) {
-			ChronoHelper.updateAdded(added, removed, e);
+			trackAdded(e);
 			return true;
 		} // else
 		return false;
@@ -100,38 +199,49 @@ public class ChronoHashSet<E> extends HashSet<E> implements ChronoSet<E> {
 
 	@Override
 	public boolean addAll(Collection<? extends E> c) {
-		Collection<E> elements = ChronoHelper.elements(this, c, false);
-		if (super.addAll(c)) {
-			ChronoHelper.updateAdded(added, removed, elements);
-			return true;
-		} // else
-		return false;
+		return ChronoHelper.addAll(c, super::add, this::trackAdded);
 	}
 
 	@Override
 	@SuppressWarnings("unchecked")
 	public boolean remove(Object o) {
 		if (super.remove(o)) {
-			ChronoHelper.updateRemoved(added, removed, (E) o);
+			trackRemoved((E) o);
 			return true;
 		} // else
 		return false;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * As in {@link java.util.AbstractSet#removeAll(Collection)}, the smaller of this set and the given collection is
+	 * iterated, each of its elements being probed once in the other.
+	 */
 	@Override
 	public boolean removeAll(Collection<?> c) {
-		Collection<E> elements = ChronoHelper.elements(this, c, true);
-		if (super.removeAll(c)) {
-			ChronoHelper.updateRemoved(added, removed, elements);
-			return true;
-		} // else
-		return false;
+		if (size() > c.size()) {
+			return ChronoHelper.removeAll(c, super::remove, this::trackRemoved);
+		}// else
+		boolean modified = false;
+		for (Iterator<E> iter = super.iterator(); iter.hasNext(); ) {
+			final E element = iter.next();
+			if (c.contains(element)) {
+				iter.remove();
+				trackRemoved(element);
+				modified = true;
+			}
+		}
+		return modified;
 	}
 
 	@Override
 	public void clear() {
 		if (!isEmpty()) {
 			ChronoHelper.updateRemoved(added, removed, this);
+			if (journal != null) {
+				journal.record(ChangeJournal.Operation.CLEAR, null, null);
+			}
 		}
 		super.clear();
 	}
@@ -141,6 +251,12 @@ public class ChronoHashSet<E> extends HashSet<E> implements ChronoSet<E> {
 		return new ChronoHashSetIterator(super.iterator());
 	}
 
+	private void readObject(ObjectInputStream s) throws IOException, ClassNotFoundException {
+		s.defaultReadObject();
+		// The table of the deserialized set is sized for its elements
+		maxSize = size();
+	}
+
 	final class ChronoHashSetIterator implements Iterator<E> {
 
 		private final Iterator<E> delegate;
@@ -165,7 +281,7 @@ public class ChronoHashSet<E> extends HashSet<E> implements ChronoSet<E> {
 		@Override
 		public void remove() {
 			if (last != null) {
-				ChronoHelper.updateRemoved(added, removed, last);
+				trackRemoved(last);
 			}
 			delegate.remove();
 		}
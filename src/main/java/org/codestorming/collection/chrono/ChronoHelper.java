@@ -14,6 +14,8 @@ package org.codestorming.collection.chrono;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 /**
  * The {@link ChronoHelper} utility class gathers the methods used in the Chrono-collection API.
@@ -30,9 +32,8 @@ public class ChronoHelper {
 	}
 
 	public static <E> void updateAdded(Collection<E> added, Collection<E> removed, E element) {
-		if (removed.contains(element)) {
-			removed.remove(element);
-		} else {
+		// Single lookup when the removed collection is hash-based
+		if (!removed.remove(element)) {
 			added.add(element);
 		}
 	}
@@ -44,13 +45,73 @@ public class ChronoHelper {
 	}
 
 	public static <E> void updateRemoved(Collection<E> added, Collection<E> removed, E element) {
-		if (added.contains(element)) {
-			added.remove(element);
-		} else {
+		if (!added.remove(element)) {
 			removed.add(element);
 		}
 	}
 
+	/**
+	 * Adds the given elements with the given operation, passing the elements actually added to the given tracker.
+	 * <p>
+	 * The change and its tracking are done in a single pass over the elements, without intermediate collection.
+	 *
+	 * @param elements The elements to add.
+	 * @param add The operation adding an element, returning {@code true} if the element was added.
+	 * @param tracker The tracker of the added elements.
+	 * @return {@code true} if at least one element was added.
+	 */
+	public static <E> boolean addAll(Collection<? extends E> elements, Predicate<? super E> add,
+			Consumer<? super E> tracker) {
+		boolean modified = false;
+		for (E element : elements) {
+			if (add.test(element)) {
+				tracker.accept(element);
+				modified = true;
+			}
+		}
+		return modified;
+	}
+
+	/**
+	 * Removes the given objects with the given operation, passing the objects actually removed to the given tracker.
+	 * <p>
+	 * The change and its tracking are done in a single pass over the objects, without intermediate collection.
+	 *
+	 * @param objects The objects to remove.
+	 * @param remove The operation removing an object, returning {@code true} if the object was removed.
+	 * @param tracker The tracker of the removed elements.
+	 * @return {@code true} if at least one object was removed.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <E> boolean removeAll(Collection<?> objects, Predicate<Object> remove, Consumer<? super E> tracker) {
+		boolean modified = false;
+		for (Object o : objects) {
+			if (remove.test(o)) {
+				tracker.accept((E) o);
+				modified = true;
+			}
+		}
+		return modified;
+	}
+
+	/**
+	 * Returns a predicate testing the given one and passing the elements it matches to the given tracker, to be used
+	 * as a removal filter.
+	 *
+	 * @param filter The removal filter.
+	 * @param tracker The tracker of the removed elements.
+	 * @return the tracking removal filter.
+	 */
+	public static <E> Predicate<E> trackingFilter(Predicate<? super E> filter, Consumer<? super E> tracker) {
+		return element -> {
+			if (filter.test(element)) {
+				tracker.accept(element);
+				return true;
+			}// else
+			return false;
+		};
+	}
+
 	public static <E> void reset(Collection<E> added, Collection<E> removed) {
 		added.clear();
 		removed.clear();
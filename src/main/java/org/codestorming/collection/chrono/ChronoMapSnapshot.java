@@ -0,0 +1,285 @@
+/*
+ * Copyright (c) 2012-2018 Codestorming.org
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Codestorming - initial API and implementation
+ */
+package org.codestorming.collection.chrono;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Immutable snapshot of a {@link ChronoHashMap}, including its {@code added} and {@code removed} maps.
+ * <p>
+ * The snapshot does not copy the map on creation: it reads through the live map, and the map saves the previous state
+ * of each key in the snapshot <em>overlays</em> before modifying it. Hence, a write only copies the mappings it
+ * touches. The live map is read under an optimistic {@link StampedLock} read, validated after the read, so the readers
+ * never block the writer.
+ * <p>
+ * The operations needing all the mappings ({@link #size()}, {@link #entrySet()}, {@link #added()}, {@link
+ * #removed()}...) materialize the snapshot in plain {@link HashMap}s the first time they are called. If the map keeps
+ * being modified during a read, the reader does not lock it: after several failed optimistic reads, it requests the
+ * writer to materialize the snapshot on its next modification, and waits for it. The snapshot is also materialized by
+ * the map itself before an operation modifying all its mappings (such as {@link ChronoHashMap#clear()}). Once
+ * materialized, the snapshot does not read the live map anymore.
+ *
+ * @author Thaedrik [thaedrik@codestorming.org]
+ * @since 2.1
+ */
+final class ChronoMapSnapshot<K, V> extends AbstractMap<K, V> implements ChronoMap<K, V> {
+
+	/**
+	 * Marks an absent mapping.
+	 */
+	static final Object ABSENT = new Object();
+
+	static final int BASE = 0;
+
+	static final int ADDED = 1;
+
+	static final int REMOVED = 2;
+
+	/**
+	 * Stands for {@code null} in the overlays, which do not support {@code null} keys or values.
+	 */
+	private static final Object NULL = new Object();
+
+	private static final int OPTIMISTIC_ATTEMPTS = 4;
+
+	private final ChronoHashMap<K, V> map;
+
+	private final StampedLock lock;
+
+	/**
+	 * Previous state of the keys modified since the creation of this snapshot, for the map, its {@code added} map and
+	 * its {@code removed} map.
+	 */
+	private final ConcurrentHashMap<Object, Object> baseOverlay = new ConcurrentHashMap<>();
+
+	private final ConcurrentHashMap<Object, Object> addedOverlay = new ConcurrentHashMap<>();
+
+	private final ConcurrentHashMap<Object, Object> removedOverlay = new ConcurrentHashMap<>();
+
+	private volatile Materialized<K, V> materialized;
+
+	/**
+	 * Indicates if a reader failed to copy the live map, the writer materializing this snapshot on its next write.
+	 */
+	private volatile boolean materializationRequested;
+
+	ChronoMapSnapshot(ChronoHashMap<K, V> map, StampedLock lock) {
+		this.map = map;
+		this.lock = lock;
+	}
+
+	private static Object mask(Object o) {
+		return o == null ? NULL : o;
+	}
+
+	private static Object unmask(Object o) {
+		return o == NULL ? null : o;
+	}
+
+	private ConcurrentHashMap<Object, Object> overlay(int which) {
+		return which == BASE ? baseOverlay : which == ADDED ? addedOverlay : removedOverlay;
+	}
+
+	/**
+	 * Indicates if this snapshot no longer reads the live map.
+	 */
+	boolean isMaterialized() {
+		return materialized != null;
+	}
+
+	/**
+	 * Saves the current state of the given key, before its modification, or materializes this snapshot if a reader
+	 * requested it.
+	 * <p>
+	 * Must be called by the writer holding the write lock.
+	 */
+	void preserve(Object key) {
+		if (materialized == null) {
+			if (materializationRequested) {
+				materialized = copy();
+				return;
+			}// else
+			final Object maskedKey = mask(key);
+			for (int which = BASE; which <= REMOVED; which++) {
+				final Object value = map.liveValue(which, key);
+				overlay(which).putIfAbsent(maskedKey, value == ABSENT ? ABSENT : mask(value));
+			}
+		}
+	}
+
+	/**
+	 * Copies the mappings of the snapshot, before a modification of all the keys of the map.
+	 * <p>
+	 * Must be called by the writer holding the write lock.
+	 */
+	void materialize() {
+		if (materialized == null) {
+			materialized = copy();
+		}
+	}
+
+	private Materialized<K, V> copy() {
+		return new Materialized<>(copy(BASE), copy(ADDED), copy(REMOVED));
+	}
+
+	@SuppressWarnings("unchecked")
+	private Map<K, V> copy(int which) {
+		final Map<K, V> copy = new HashMap<>(map.liveMap(which));
+		for (Map.Entry<Object, Object> entry : overlay(which).entrySet()) {
+			final K key = (K) unmask(entry.getKey());
+			if (entry.getValue() == ABSENT) {
+				copy.remove(key);
+			} else {
+				copy.put(key, (V) unmask(entry.getValue()));
+			}
+		}
+		return Collections.unmodifiableMap(copy);
+	}
+
+	/**
+	 * Returns the materialized mappings, copying them if needed.
+	 * <p>
+	 * The copy is never made under a read lock, which would block the writer for a time proportional to the size of the
+	 * map. After several failed optimistic copies, the writer is requested to make it on its next write, while the
+	 * optimistic copies are still attempted in case the writes stopped.
+	 */
+	private Materialized<K, V> materialized() {
+		Materialized<K, V> m = materialized;
+		for (int attempt = 0; m == null; attempt++) {
+			if (attempt >= OPTIMISTIC_ATTEMPTS) {
+				materializationRequested = true;
+				Thread.yield();
+			}
+			final long stamp = lock.tryOptimisticRead();
+			try {
+				m = materialized;
+				if (m == null && stamp != 0L) {
+					final Materialized<K, V> copy = copy();
+					if (lock.validate(stamp)) {
+						materialized = m = copy;
+					}
+				}
+			} catch (RuntimeException e) {
+				// The live map was modified during the optimistic read
+			}
+		}
+		return m;
+	}
+
+	/**
+	 * Returns the value of the given key in the given map of this snapshot, or {@link #ABSENT}.
+	 * <p>
+	 * Like the copies, the lookups are never made under a read lock. After several failed optimistic reads, the writer
+	 * is requested to materialize this snapshot on its next write.
+	 */
+	private Object lookup(int which, Object key) {
+		for (int attempt = 0; ; attempt++) {
+			if (attempt >= OPTIMISTIC_ATTEMPTS) {
+				materializationRequested = true;
+				Thread.yield();
+			}
+			final long stamp = lock.tryOptimisticRead();
+			try {
+				final Materialized<K, V> m = materialized;
+				if (m != null) {
+					final Map<K, V> copy = m.get(which);
+					final V value = copy.get(key);
+					return value != null || copy.containsKey(key) ? value : ABSENT;
+				}// else
+				final Object saved = overlay(which).get(mask(key));
+				if (saved != null) {
+					return saved == ABSENT ? ABSENT : unmask(saved);
+				}// else
+				if (stamp != 0L) {
+					final Object value = map.liveValue(which, key);
+					if (lock.validate(stamp)) {
+						return value;
+					}
+				}
+			} catch (RuntimeException e) {
+				// The live map was modified during the optimistic read
+			}
+		}
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public V get(Object key) {
+		final Object value = lookup(BASE, key);
+		return value == ABSENT ? null : (V) value;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public V getOrDefault(Object key, V defaultValue) {
+		final Object value = lookup(BASE, key);
+		return value == ABSENT ? defaultValue : (V) value;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return lookup(BASE, key) != ABSENT;
+	}
+
+	@Override
+	public int size() {
+		return materialized().base.size();
+	}
+
+	@Override
+	public Set<Map.Entry<K, V>> entrySet() {
+		return materialized().base.entrySet();
+	}
+
+	@Override
+	public Map<K, V> added() {
+		return materialized().added;
+	}
+
+	@Override
+	public Map<K, V> removed() {
+		return materialized().removed;
+	}
+
+	@Override
+	public void reset() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * The unmodifiable copies of the maps of a snapshot.
+	 */
+	private static final class Materialized<K, V> {
+
+		final Map<K, V> base;
+
+		final Map<K, V> added;
+
+		final Map<K, V> removed;
+
+		Materialized(Map<K, V> base, Map<K, V> added, Map<K, V> removed) {
+			this.base = base;
+			this.added = added;
+			this.removed = removed;
+		}
+
+		Map<K, V> get(int which) {
+			return which == BASE ? base : which == ADDED ? added : removed;
+		}
+	}
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright (c) 2012-2018 Codestorming.org
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Codestorming - initial API and implementation
+ */
+package org.codestorming.collection.chrono;
+
+import java.util.NavigableMap;
+
+/**
+ * {@link ChronoMap} whose keys are sorted, as well as the keys of its {@code added} and {@code removed} maps.
+ * <p>
+ * The changes of a range of keys can then be retrieved without iterating over all the changes, with {@code
+ * added().subMap(from, to)} for instance.
+ *
+ * @author Thaedrik [thaedrik@codestorming.org]
+ * @since 2.1
+ */
+public interface ChronoNavigableMap<K, V> extends ChronoMap<K, V>, NavigableMap<K, V> {
+
+	@Override
+	NavigableMap<K, V> added();
+
+	@Override
+	NavigableMap<K, V> removed();
+}
@@ -0,0 +1,299 @@
+/*
+ * Copyright (c) 2012-2018 Codestorming.org
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Codestorming - initial API and implementation
+ */
+package org.codestorming.collection.chrono;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+
+import org.codestorming.collection.Footprints;
+import org.codestorming.collection.OrderedHashSet;
+
+/**
+ * {@link OrderedHashSet} implementing {@link ChronoSet}, tracking the added and removed elements, and the moved ones.
+ * <p>
+ * The changes are tracked through the modification hooks of {@code OrderedHashSet}, in constant time per element. The
+ * order of the elements at the last reset is kept, so that the {@link #moves()} report the positions of the moved
+ * elements at the last reset, their current positions being computed when the moves are requested. Hence, each reset
+ * copies the elements of this set. Only the elements which were in this set at the last reset are tracked as moved,
+ * the added ones being simply reported in {@link #added()}.
+ * <p>
+ * The elements given to the constructors form the original state of the set, and are not tracked as added.
+ *
+ * @author Thaedrik [thaedrik@codestorming.org]
+ * @since 2.1
+ */
+public class ChronoOrderedSet<E> extends OrderedHashSet<E> implements ChronoSet<E> {
+
+	private static final long serialVersionUID = -2519376424907391254L;
+
+	/*
+	 * The tracking structures are null while the super constructor or deserialization adds the original elements.
+	 */
+
+	private HashSet<E> added;
+
+	private HashSet<E> removed;
+
+	/**
+	 * The original elements moved, or removed then added back, since the last reset.
+	 */
+	private HashSet<E> moved;
+
+	/**
+	 * The elements of this set at the last reset, in their order.
+	 */
+	private Object[] original;
+
+	/**
+	 * Creates a new {@code ChronoOrderedSet}.
+	 */
+	public ChronoOrderedSet() {
+		super();
+		initTracking();
+	}
+
+	/**
+	 * Creates a new {@code ChronoOrderedSet} containing the elements of the given collection, in their iteration
+	 * order.
+	 *
+	 * @param c The original elements of the set.
+	 */
+	public ChronoOrderedSet(Collection<? extends E> c) {
+		super(c);
+		initTracking();
+	}
+
+	/**
+	 * Creates a new {@code ChronoOrderedSet}.
+	 *
+	 * @param initialCapacity The initial capacity of the set.
+	 */
+	public ChronoOrderedSet(int initialCapacity) {
+		super(initialCapacity);
+		initTracking();
+	}
+
+	private void initTracking() {
+		added = new HashSet<>();
+		removed = new HashSet<>();
+		moved = new HashSet<>();
+		original = toArray();
+	}
+
+	@Override
+	public Set<E> added() {
+		return Collections.unmodifiableSet(added);
+	}
+
+	@Override
+	public Set<E> removed() {
+		return Collections.unmodifiableSet(removed);
+	}
+
+	/**
+	 * Returns the moves of the elements since the last reset: the elements of the original set still contained in this
+	 * set, moved or removed then added back, whose current position differs from their position at the last reset.
+	 * <p>
+	 * This method costs a time proportional to the size of this set and to its size at the last reset.
+	 *
+	 * @return the moves of the elements since the last reset, in the order of the elements in this set.
+	 */
+	public List<Move<E>> moves() {
+		final List<Move<E>> moves = new ArrayList<>();
+		if (!moved.isEmpty()) {
+			final Map<Object, Integer> positions = new HashMap<>(moved.size() * 4 / 3 + 1);
+			for (int i = 0; i < original.length; i++) {
+				if (moved.contains(original[i])) {
+					positions.put(original[i], i);
+				}
+			}
+			for (int i = 0, size = size(); i < size; i++) {
+				final E e = get(i);
+				final Integer from = positions.get(e);
+				if (from != null && from != i) {
+					moves.add(new Move<>(e, from, i));
+				}
+			}
+		}
+		return moves;
+	}
+
+	@Override
+	public void reset() {
+		ChronoHelper.reset(added, removed);
+		moved.clear();
+		original = toArray();
+	}
+
+	@Override
+	protected void onAdd(E e, int index) {
+		if (added != null && !removed.remove(e)) {
+			added.add(e);
+		}
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	protected void onRemove(Object o, int index) {
+		if (added != null && !added.remove(o)) {
+			removed.add((E) o);
+			moved.add((E) o);
+		}
+	}
+
+	@Override
+	protected void onMove(E e, int from, int to) {
+		if (added != null && !added.contains(e)) {
+			moved.add(e);
+		}
+	}
+
+	@Override
+	protected void onClear() {
+		for (int i = 0, size = size(); i < size; i++) {
+			onRemove(get(i), i);
+		}
+	}
+
+	/**
+	 * Tracks the original elements as moved, before a change of all the positions.
+	 */
+	private void trackAllPositions() {
+		for (int i = 0, size = size(); i < size; i++) {
+			onMove(get(i), i, i);
+		}
+	}
+
+	@Override
+	public void rotate(int distance) {
+		trackAllPositions();
+		super.rotate(distance);
+	}
+
+	@Override
+	public void reverse() {
+		trackAllPositions();
+		super.reverse();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The replaced elements are tracked as removed, their replacements as added.
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public void replaceAll(UnaryOperator<E> operator) {
+		final E[] before = (E[]) toArray();
+		super.replaceAll(operator);
+		final Set<E> previous = new HashSet<>(before.length);
+		for (int i = 0; i < before.length; i++) {
+			previous.add(before[i]);
+			if (!contains(before[i])) {
+				onRemove(before[i], i);
+			}
+		}
+		for (int i = 0, size = size(); i < size; i++) {
+			final E e = get(i);
+			if (!previous.contains(e)) {
+				onAdd(e, i);
+			}
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The side structures of a {@code ChronoOrderedSet} are its internal {@code HashSet}, its tracking structures and
+	 * the copy of its elements at the last reset.
+	 */
+	@Override
+	public long sideStructureBytes() {
+		return super.sideStructureBytes() + Footprints.hashSetBytes(added.size())
+				+ Footprints.hashSetBytes(removed.size()) + Footprints.hashSetBytes(moved.size())
+				+ Footprints.referenceArrayBytes(original.length);
+	}
+
+	@Override
+	public long shallowBytes() {
+		return Footprints.objectBytes(7, 13);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public Object clone() {
+		final ChronoOrderedSet<E> clone = (ChronoOrderedSet<E>) super.clone();
+		clone.added = new HashSet<>(added);
+		clone.removed = new HashSet<>(removed);
+		clone.moved = new HashSet<>(moved);
+		return clone;
+	}
+
+	/**
+	 * The move of an element of a {@link ChronoOrderedSet}.
+	 *
+	 * @param <E> Type of the element.
+	 */
+	public static final class Move<E> {
+
+		private final E element;
+
+		private final int from;
+
+		private final int to;
+
+		Move(E element, int from, int to) {
+			this.element = element;
+			this.from = from;
+			this.to = to;
+		}
+
+		/**
+		 * Returns the moved element.
+		 *
+		 * @return the moved element.
+		 */
+		public E getElement() {
+			return element;
+		}
+
+		/**
+		 * Returns the position of the element at the last reset.
+		 *
+		 * @return the position of the element before its move.
+		 */
+		public int getFrom() {
+			return from;
+		}
+
+		/**
+		 * Returns the current position of the element.
+		 *
+		 * @return the position of the element after its move.
+		 */
+		public int getTo() {
+			return to;
+		}
+
+		@Override
+		public String toString() {
+			return element + ": " + from + " -> " + to;
+		}
+	}
+}
@@ -0,0 +1,495 @@
+/*
+ * Copyright (c) 2012-2018 Codestorming.org
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Codestorming - initial API and implementation
+ */
+package org.codestorming.collection.chrono;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * A {@code ChronoTreeMap} is a {@link TreeMap} implementing {@link ChronoNavigableMap}: its {@code added} and {@code
+ * removed} maps are also {@code TreeMap}s, sorted with the same comparator.
+ * <p>
+ * The navigable views of this map ({@link #subMap(Object, boolean, Object, boolean) subMap}, {@link
+ * #descendingMap() descendingMap}, {@link #navigableKeySet() navigableKeySet}...) are unmodifiable. The value changes
+ * made with {@link Map.Entry#setValue(Object)} on the entries of {@link #entrySet()} are not tracked.
+ *
+ * @author Thaedrik [thaedrik@codestorming.org]
+ * @since 2.1
+ */
+public class ChronoTreeMap<K, V> extends TreeMap<K, V> implements ChronoNavigableMap<K, V> {
+
+	private static final long serialVersionUID = 4012458276453387622L;
+
+	protected TreeMap<K, V> added;
+
+	protected TreeMap<K, V> removed;
+
+	private transient EntrySet entrySetView;
+
+	private transient KeySet keySetView;
+
+	private transient Values valuesView;
+
+	/**
+	 * Creates a new {@code ChronoTreeMap}, sorted according to the natural ordering of its keys.
+	 */
+	public ChronoTreeMap() {
+		this((Comparator<? super K>) null);
+	}
+
+	/**
+	 * Creates a new {@code ChronoTreeMap}, sorted according to the given comparator.
+	 *
+	 * @param comparator The comparator of the keys, {@code null} for their natural ordering.
+	 */
+	public ChronoTreeMap(Comparator<? super K> comparator) {
+		super(comparator);
+		added = new TreeMap<>(comparator);
+		removed = new TreeMap<>(comparator);
+	}
+
+	/**
+	 * Creates a new {@code ChronoTreeMap} containing the mappings of the given sorted map, sorted with the same
+	 * comparator.
+	 * <p>
+	 * The given mappings form the original state of the map, and are not tracked as added.
+	 *
+	 * @param m The original mappings of the map.
+	 */
+	public ChronoTreeMap(SortedMap<K, ? extends V> m) {
+		this(m.comparator());
+		for (Map.Entry<K, ? extends V> entry : m.entrySet()) {
+			_put(entry.getKey(), entry.getValue());
+		}
+	}
+
+	private static boolean objectEqual(Object o1, Object o2) {
+		return o1 == o2 || o1 != null && o1.equals(o2);
+	}
+
+	@Override
+	public NavigableMap<K, V> added() {
+		return added;
+	}
+
+	@Override
+	public NavigableMap<K, V> removed() {
+		return removed;
+	}
+
+	@Override
+	public void reset() {
+		added.clear();
+		removed.clear();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The clone tracks its own changes: its {@code added} and {@code removed} maps are copies of the ones of this map.
+	 * The views of this map are not shared with the clone.
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public Object clone() {
+		final ChronoTreeMap<K, V> clone = (ChronoTreeMap<K, V>) super.clone();
+		clone.added = new TreeMap<>(added);
+		clone.removed = new TreeMap<>(removed);
+		// The cached views are bound to this map
+		clone.entrySetView = null;
+		clone.keySetView = null;
+		clone.valuesView = null;
+		return clone;
+	}
+
+	protected void _put(K key, V value) {
+		super.put(key, value);
+	}
+
+	/**
+	 * Tracks the mapping of the given key to the given value.
+	 */
+	private void trackPut(K key, V value) {
+		final V removedValue = removed.get(key);
+		if ((removedValue != null || removed.containsKey(key)) && objectEqual(removedValue, value)) {
+			removed.remove(key);
+		} else {
+			added.put(key, value);
+		}
+	}
+
+	/**
+	 * Tracks the removal of the mapping of the given key to the given value.
+	 */
+	private void trackRemove(K key, V value) {
+		final V addedValue = added.get(key);
+		if ((addedValue != null || added.containsKey(key)) && objectEqual(addedValue, value)) {
+			added.remove(key);
+		} else {
+			removed.put(key, value);
+		}
+	}
+
+	@Override
+	public V put(K key, V value) {
+		final V old = super.put(key, value);
+		trackPut(key, value);
+		return old;
+	}
+
+	@Override
+	public void putAll(Map<? extends K, ? extends V> m) {
+		for (Map.Entry<? extends K, ? extends V> entry : m.entrySet()) {
+			put(entry.getKey(), entry.getValue());
+		}
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public V remove(Object key) {
+		final boolean contained = containsKey(key);
+		final V value = super.remove(key);
+		if (contained) {
+			trackRemove((K) key, value);
+		}
+		return value;
+	}
+
+	@Override
+	public Map.Entry<K, V> pollFirstEntry() {
+		final Map.Entry<K, V> entry = super.pollFirstEntry();
+		if (entry != null) {
+			trackRemove(entry.getKey(), entry.getValue());
+		}
+		return entry;
+	}
+
+	@Override
+	public Map.Entry<K, V> pollLastEntry() {
+		final Map.Entry<K, V> entry = super.pollLastEntry();
+		if (entry != null) {
+			trackRemove(entry.getKey(), entry.getValue());
+		}
+		return entry;
+	}
+
+	/*
+	 * The following methods are implemented with the tracked operations, the TreeMap implementations not calling them
+	 * on every Java version.
+	 */
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Only the mappings whose value actually changes are tracked.
+	 */
+	@Override
+	public void replaceAll(BiFunction<? super K, ? super V, ? extends V> function) {
+		Objects.requireNonNull(function);
+		for (Map.Entry<K, V> entry : super.entrySet()) {
+			final V value = function.apply(entry.getKey(), entry.getValue());
+			if (!objectEqual(value, entry.getValue())) {
+				entry.setValue(value);
+				trackPut(entry.getKey(), value);
+			}
+		}
+	}
+
+	@Override
+	public V putIfAbsent(K key, V value) {
+		final V old = get(key);
+		// A key mapped to null is left unchanged when mapped to null again
+		if (old == null && (value != null || !containsKey(key))) {
+			put(key, value);
+		}
+		return old;
+	}
+
+	@Override
+	public boolean remove(Object key, Object value) {
+		if (containsKey(key) && objectEqual(get(key), value)) {
+			remove(key);
+			return true;
+		} // else
+		return false;
+	}
+
+	@Override
+	public boolean replace(K key, V oldValue, V newValue) {
+		if (containsKey(key) && objectEqual(get(key), oldValue)) {
+			put(key, newValue);
+			return true;
+		} // else
+		return false;
+	}
+
+	@Override
+	public V replace(K key, V value) {
+		return containsKey(key) ? put(key, value) : null;
+	}
+
+	@Override
+	public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+		Objects.requireNonNull(mappingFunction);
+		final V old = get(key);
+		if (old != null) {
+			return old;
+		}// else
+		final V value = mappingFunction.apply(key);
+		if (value != null) {
+			put(key, value);
+		}
+		return value;
+	}
+
+	@Override
+	public V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+		Objects.requireNonNull(remappingFunction);
+		final V old = get(key);
+		if (old == null) {
+			return null;
+		}// else
+		return update(key, true, remappingFunction.apply(key, old));
+	}
+
+	@Override
+	public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+		Objects.requireNonNull(remappingFunction);
+		final V old = get(key);
+		return update(key, old != null || containsKey(key), remappingFunction.apply(key, old));
+	}
+
+	@Override
+	public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+		Objects.requireNonNull(value);
+		Objects.requireNonNull(remappingFunction);
+		final V old = get(key);
+		return update(key, old != null, old == null ? value : remappingFunction.apply(old, value));
+	}
+
+	/**
+	 * Maps the given key to the given computed value, or removes its mapping if the value is {@code null}.
+	 *
+	 * @return the computed value.
+	 */
+	private V update(K key, boolean present, V value) {
+		if (value != null) {
+			put(key, value);
+		} else if (present) {
+			remove(key);
+		}
+		return value;
+	}
+
+	@Override
+	public void clear() {
+		if (!isEmpty()) {
+			for (K k : added.keySet()) {
+				super.remove(k);
+			}
+			added.clear();
+			removed.putAll(this);
+		}
+		super.clear();
+	}
+
+	@Override
+	public Set<Map.Entry<K, V>> entrySet() {
+		final EntrySet entrySet = entrySetView;
+		return entrySet != null ? entrySet : (entrySetView = new EntrySet(super.entrySet()));
+	}
+
+	@Override
+	public Set<K> keySet() {
+		final KeySet keySet = keySetView;
+		return keySet != null ? keySet : (keySetView = new KeySet(super.keySet()));
+	}
+
+	@Override
+	public Collection<V> values() {
+		final Values values = valuesView;
+		return values != null ? values : (valuesView = new Values(super.values()));
+	}
+
+	@Override
+	public NavigableSet<K> navigableKeySet() {
+		return Collections.unmodifiableNavigableSet(super.navigableKeySet());
+	}
+
+	@Override
+	public NavigableSet<K> descendingKeySet() {
+		return Collections.unmodifiableNavigableSet(super.descendingKeySet());
+	}
+
+	@Override
+	public NavigableMap<K, V> descendingMap() {
+		return Collections.unmodifiableNavigableMap(super.descendingMap());
+	}
+
+	@Override
+	public NavigableMap<K, V> subMap(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive) {
+		return Collections.unmodifiableNavigableMap(super.subMap(fromKey, fromInclusive, toKey, toInclusive));
+	}
+
+	@Override
+	public NavigableMap<K, V> headMap(K toKey, boolean inclusive) {
+		return Collections.unmodifiableNavigableMap(super.headMap(toKey, inclusive));
+	}
+
+	@Override
+	public NavigableMap<K, V> tailMap(K fromKey, boolean inclusive) {
+		return Collections.unmodifiableNavigableMap(super.tailMap(fromKey, inclusive));
+	}
+
+	@Override
+	public SortedMap<K, V> subMap(K fromKey, K toKey) {
+		return subMap(fromKey, true, toKey, false);
+	}
+
+	@Override
+	public SortedMap<K, V> headMap(K toKey) {
+		return headMap(toKey, false);
+	}
+
+	@Override
+	public SortedMap<K, V> tailMap(K fromKey) {
+		return tailMap(fromKey, true);
+	}
+
+	/**
+	 * Iterator over the mappings of this map, tracking the removals.
+	 */
+	abstract class ChronoIterator<T> implements Iterator<T> {
+
+		private final Iterator<Map.Entry<K, V>> iter = ChronoTreeMap.super.entrySet().iterator();
+
+		private Map.Entry<K, V> last;
+
+		@Override
+		public boolean hasNext() {
+			return iter.hasNext();
+		}
+
+		@Override
+		public T next() {
+			last = iter.next();
+			return element(last);
+		}
+
+		abstract T element(Map.Entry<K, V> entry);
+
+		@Override
+		public void remove() {
+			if (last == null) {
+				throw new IllegalStateException();
+			}// else
+			final K key = last.getKey();
+			final V value = last.getValue();
+			iter.remove();
+			last = null;
+			trackRemove(key, value);
+		}
+	}
+
+	final class EntrySet extends DelegatedSet<Map.Entry<K, V>> {
+
+		EntrySet(Set<Map.Entry<K, V>> delegate) {
+			super(delegate);
+		}
+
+		@Override
+		public Iterator<Map.Entry<K, V>> iterator() {
+			return new ChronoIterator<Map.Entry<K, V>>() {
+				@Override
+				Map.Entry<K, V> element(Map.Entry<K, V> entry) {
+					return entry;
+				}
+			};
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public boolean remove(Object o) {
+			final boolean remove = delegate.remove(o);
+			if (remove) {
+				final Map.Entry<K, V> entry = (Map.Entry<K, V>) o;
+				trackRemove(entry.getKey(), entry.getValue());
+			}
+			return remove;
+		}
+	}
+
+	final class KeySet extends DelegatedSet<K> {
+
+		KeySet(Set<K> delegate) {
+			super(delegate);
+		}
+
+		@Override
+		public Iterator<K> iterator() {
+			return new ChronoIterator<K>() {
+				@Override
+				K element(Map.Entry<K, V> entry) {
+					return entry.getKey();
+				}
+			};
+		}
+
+		@Override
+		public boolean remove(Object o) {
+			if (containsKey(o)) {
+				ChronoTreeMap.this.remove(o);
+				return true;
+			} // else
+			return false;
+		}
+	}
+
+	final class Values extends DelegatedCollection<V> {
+
+		Values(Collection<V> delegate) {
+			super(delegate);
+		}
+
+		@Override
+		public Iterator<V> iterator() {
+			return new ChronoIterator<V>() {
+				@Override
+				V element(Map.Entry<K, V> entry) {
+					return entry.getValue();
+				}
+			};
+		}
+
+		@Override
+		public boolean remove(Object o) {
+			for (Iterator<V> iter = iterator(); iter.hasNext(); ) {
+				if (objectEqual(o, iter.next())) {
+					iter.remove();
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+}
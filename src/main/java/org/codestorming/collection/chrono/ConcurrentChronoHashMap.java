@@ -0,0 +1,516 @@
+/*
+ * Copyright (c) 2012-2018 Codestorming.org
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Codestorming - initial API and implementation
+ */
+package org.codestorming.collection.chrono;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * A <em>thread-safe</em> {@link ChronoMap} backed by a {@link ConcurrentHashMap}.
+ * <p>
+ * The changes are tracked in <em>stripes</em>, each holding the {@code added} and {@code removed} mappings of the keys
+ * whose hash falls in it. A change is tracked within the atomic update of its key in the {@code ConcurrentHashMap}
+ * (while holding the lock of the key's bin), under the lock of the key's stripe only: the writers of different stripes
+ * never contend on the tracking.
+ * <p>
+ * The {@link #added()} and {@link #removed()} methods return copies of the tracked changes, and {@link
+ * #drainChanges()} atomically takes the tracked changes of each stripe out, while the writers continue. The changes of
+ * a given key are always consistent, but the stripes are not drained at the same instant: a change of another key made
+ * during a drain may be returned by that drain or by the next one (never both, never none).
+ * <p>
+ * Like {@code ConcurrentHashMap}, this map does not support {@code null} keys or values, and the functions given to
+ * its compute methods must be short and must not modify this map.
+ *
+ * @author Thaedrik [thaedrik@codestorming.org]
+ * @since 2.1
+ */
+public class ConcurrentChronoHashMap<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>, ChronoMap<K, V> {
+
+	private static final int DEFAULT_STRIPES = 64;
+
+	private final ConcurrentHashMap<K, V> map;
+
+	private final Stripe<K, V>[] stripes;
+
+	private transient EntrySet entrySetView;
+
+	/**
+	 * Creates a new {@code ConcurrentChronoHashMap}.
+	 */
+	public ConcurrentChronoHashMap() {
+		this(16, DEFAULT_STRIPES);
+	}
+
+	/**
+	 * Creates a new {@code ConcurrentChronoHashMap}.
+	 *
+	 * @param initialCapacity The expected number of mappings.
+	 * @param stripes The number of stripes tracking the changes, rounded up to a power of two.
+	 * @throws IllegalArgumentException if {@code initialCapacity < 0}, or if {@code stripes} is not between 1 and
+	 * 65536.
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public ConcurrentChronoHashMap(int initialCapacity, int stripes) {
+		if (stripes <= 0 || stripes > 1 << 16) {
+			throw new IllegalArgumentException("Illegal number of stripes: " + stripes);
+		}// else
+		map = new ConcurrentHashMap<>(initialCapacity);
+		int length = 1;
+		while (length < stripes) {
+			length <<= 1;
+		}
+		this.stripes = new Stripe[length];
+		for (int i = 0; i < this.stripes.length; i++) {
+			this.stripes[i] = new Stripe<>();
+		}
+	}
+
+	private Stripe<K, V> stripe(Object key) {
+		final int h = key.hashCode();
+		return stripes[(h ^ h >>> 16) & stripes.length - 1];
+	}
+
+	/**
+	 * Tracks the change of the mapping of the given key from the given old value to the given new one, within the
+	 * atomic update of the key.
+	 *
+	 * @return the new value.
+	 */
+	private V track(K key, V old, V value) {
+		if (value != null) {
+			stripe(key).trackPut(key, value);
+		} else if (old != null) {
+			stripe(key).trackRemove(key, old);
+		}
+		return value;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The returned map is an unmodifiable copy of the added mappings.
+	 */
+	@Override
+	public Map<K, V> added() {
+		final Map<K, V> added = new HashMap<>();
+		for (Stripe<K, V> stripe : stripes) {
+			synchronized (stripe) {
+				added.putAll(stripe.added);
+			}
+		}
+		return Collections.unmodifiableMap(added);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The returned map is an unmodifiable copy of the removed mappings.
+	 */
+	@Override
+	public Map<K, V> removed() {
+		final Map<K, V> removed = new HashMap<>();
+		for (Stripe<K, V> stripe : stripes) {
+			synchronized (stripe) {
+				removed.putAll(stripe.removed);
+			}
+		}
+		return Collections.unmodifiableMap(removed);
+	}
+
+	@Override
+	public void reset() {
+		for (Stripe<K, V> stripe : stripes) {
+			synchronized (stripe) {
+				stripe.added.clear();
+				stripe.removed.clear();
+			}
+		}
+	}
+
+	/**
+	 * Returns the changes tracked since the last reset or drain, and resets them.
+	 * <p>
+	 * Each stripe is swapped out atomically, without blocking the writers of the other stripes.
+	 *
+	 * @return the drained changes.
+	 */
+	public Changes<K, V> drainChanges() {
+		final Map<K, V> added = new HashMap<>();
+		final Map<K, V> removed = new HashMap<>();
+		for (Stripe<K, V> stripe : stripes) {
+			final Map<K, V> stripeAdded;
+			final Map<K, V> stripeRemoved;
+			synchronized (stripe) {
+				stripeAdded = stripe.added;
+				stripeRemoved = stripe.removed;
+				if (stripeAdded.isEmpty() && stripeRemoved.isEmpty()) {
+					continue;
+				}// else
+				stripe.added = new HashMap<>();
+				stripe.removed = new HashMap<>();
+			}
+			added.putAll(stripeAdded);
+			removed.putAll(stripeRemoved);
+		}
+		return new Changes<>(added, removed);
+	}
+
+	@Override
+	public int size() {
+		return map.size();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return map.isEmpty();
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return map.containsKey(key);
+	}
+
+	@Override
+	public boolean containsValue(Object value) {
+		return map.containsValue(value);
+	}
+
+	@Override
+	public V get(Object key) {
+		return map.get(key);
+	}
+
+	@Override
+	public V getOrDefault(Object key, V defaultValue) {
+		return map.getOrDefault(key, defaultValue);
+	}
+
+	@Override
+	public void forEach(BiConsumer<? super K, ? super V> action) {
+		map.forEach(action);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public V put(K key, V value) {
+		Objects.requireNonNull(value);
+		final Object[] previous = new Object[1];
+		map.compute(key, (k, old) -> {
+			previous[0] = old;
+			return track(k, old, value);
+		});
+		return (V) previous[0];
+	}
+
+	@Override
+	public void putAll(Map<? extends K, ? extends V> m) {
+		for (Map.Entry<? extends K, ? extends V> entry : m.entrySet()) {
+			put(entry.getKey(), entry.getValue());
+		}
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public V remove(Object key) {
+		final Object[] previous = new Object[1];
+		map.computeIfPresent((K) key, (k, old) -> {
+			previous[0] = old;
+			return track(k, old, null);
+		});
+		return (V) previous[0];
+	}
+
+	@Override
+	public V putIfAbsent(K key, V value) {
+		Objects.requireNonNull(value);
+		final boolean[] absent = new boolean[1];
+		final V current = map.computeIfAbsent(key, k -> {
+			absent[0] = true;
+			return track(k, null, value);
+		});
+		return absent[0] ? null : current;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public boolean remove(Object key, Object value) {
+		if (value == null) {
+			return false;
+		}// else
+		final boolean[] removed = new boolean[1];
+		map.computeIfPresent((K) key, (k, old) -> {
+			if (old.equals(value)) {
+				removed[0] = true;
+				return track(k, old, null);
+			}// else
+			return old;
+		});
+		return removed[0];
+	}
+
+	@Override
+	public boolean replace(K key, V oldValue, V newValue) {
+		Objects.requireNonNull(oldValue);
+		Objects.requireNonNull(newValue);
+		final boolean[] replaced = new boolean[1];
+		map.computeIfPresent(key, (k, old) -> {
+			if (old.equals(oldValue)) {
+				replaced[0] = true;
+				return track(k, old, newValue);
+			}// else
+			return old;
+		});
+		return replaced[0];
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public V replace(K key, V value) {
+		Objects.requireNonNull(value);
+		final Object[] previous = new Object[1];
+		map.computeIfPresent(key, (k, old) -> {
+			previous[0] = old;
+			return track(k, old, value);
+		});
+		return (V) previous[0];
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Only the mappings whose value actually changes are tracked.
+	 */
+	@Override
+	public void replaceAll(BiFunction<? super K, ? super V, ? extends V> function) {
+		Objects.requireNonNull(function);
+		for (K key : map.keySet()) {
+			map.computeIfPresent(key, (k, old) -> {
+				final V value = Objects.requireNonNull(function.apply(k, old));
+				return value.equals(old) ? old : track(k, old, value);
+			});
+		}
+	}
+
+	@Override
+	public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+		Objects.requireNonNull(mappingFunction);
+		return map.computeIfAbsent(key, k -> track(k, null, mappingFunction.apply(k)));
+	}
+
+	@Override
+	public V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+		Objects.requireNonNull(remappingFunction);
+		return map.computeIfPresent(key, (k, old) -> track(k, old, remappingFunction.apply(k, old)));
+	}
+
+	@Override
+	public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+		Objects.requireNonNull(remappingFunction);
+		return map.compute(key, (k, old) -> track(k, old, remappingFunction.apply(k, old)));
+	}
+
+	@Override
+	public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+		Objects.requireNonNull(value);
+		Objects.requireNonNull(remappingFunction);
+		return map.compute(key, (k, old) -> track(k, old, old == null ? value : remappingFunction.apply(old, value)));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The mappings are removed one by one, the concurrent additions may remain.
+	 */
+	@Override
+	public void clear() {
+		for (K key : map.keySet()) {
+			remove(key);
+		}
+	}
+
+	@Override
+	public Set<Map.Entry<K, V>> entrySet() {
+		final EntrySet entrySet = entrySetView;
+		return entrySet != null ? entrySet : (entrySetView = new EntrySet());
+	}
+
+	/**
+	 * The entries of this map. The removals and the {@link Map.Entry#setValue(Object) value changes} are tracked.
+	 */
+	final class EntrySet extends AbstractSet<Map.Entry<K, V>> {
+
+		@Override
+		public Iterator<Map.Entry<K, V>> iterator() {
+			return new Iterator<Map.Entry<K, V>>() {
+				private final Iterator<Map.Entry<K, V>> iter = map.entrySet().iterator();
+
+				private K last;
+
+				@Override
+				public boolean hasNext() {
+					return iter.hasNext();
+				}
+
+				@Override
+				public Map.Entry<K, V> next() {
+					final Map.Entry<K, V> entry = iter.next();
+					last = entry.getKey();
+					return new Entry(entry.getKey(), entry.getValue());
+				}
+
+				@Override
+				public void remove() {
+					if (last == null) {
+						throw new IllegalStateException();
+					}// else
+					ConcurrentChronoHashMap.this.remove(last);
+					last = null;
+				}
+			};
+		}
+
+		@Override
+		public int size() {
+			return map.size();
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			if (!(o instanceof Map.Entry)) {
+				return false;
+			}// else
+			final Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+			final Object key = entry.getKey();
+			final Object value = key == null ? null : map.get(key);
+			return value != null && value.equals(entry.getValue());
+		}
+
+		@Override
+		public boolean remove(Object o) {
+			if (!(o instanceof Map.Entry)) {
+				return false;
+			}// else
+			final Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+			return entry.getKey() != null && ConcurrentChronoHashMap.this.remove(entry.getKey(), entry.getValue());
+		}
+
+		@Override
+		public void clear() {
+			ConcurrentChronoHashMap.this.clear();
+		}
+	}
+
+	/**
+	 * Entry writing its value changes through the map.
+	 */
+	final class Entry extends AbstractMap.SimpleEntry<K, V> {
+
+		private static final long serialVersionUID = 1L;
+
+		Entry(K key, V value) {
+			super(key, value);
+		}
+
+		@Override
+		public V setValue(V value) {
+			put(getKey(), value);
+			return super.setValue(value);
+		}
+	}
+
+	/**
+	 * The changes tracked for the keys of a stripe, guarded by the stripe itself.
+	 */
+	private static final class Stripe<K, V> {
+
+		Map<K, V> added = new HashMap<>();
+
+		Map<K, V> removed = new HashMap<>();
+
+		synchronized void trackPut(K key, V value) {
+			if (value.equals(removed.get(key))) {
+				removed.remove(key);
+			} else {
+				added.put(key, value);
+			}
+		}
+
+		synchronized void trackRemove(K key, V value) {
+			if (value.equals(added.get(key))) {
+				added.remove(key);
+			} else {
+				removed.put(key, value);
+			}
+		}
+	}
+
+	/**
+	 * The changes drained from a {@link ConcurrentChronoHashMap}.
+	 *
+	 * @param <K> Type of the keys.
+	 * @param <V> Type of the values.
+	 */
+	public static final class Changes<K, V> {
+
+		private final Map<K, V> added;
+
+		private final Map<K, V> removed;
+
+		Changes(Map<K, V> added, Map<K, V> removed) {
+			this.added = Collections.unmodifiableMap(added);
+			this.removed = Collections.unmodifiableMap(removed);
+		}
+
+		/**
+		 * Returns the added mappings.
+		 *
+		 * @return the added mappings (unmodifiable).
+		 */
+		public Map<K, V> added() {
+			return added;
+		}
+
+		/**
+		 * Returns the removed mappings.
+		 *
+		 * @return the removed mappings (unmodifiable).
+		 */
+		public Map<K, V> removed() {
+			return removed;
+		}
+
+		/**
+		 * Indicates if there is no change.
+		 *
+		 * @return {@code true} if there is no change.
+		 */
+		public boolean isEmpty() {
+			return added.isEmpty() && removed.isEmpty();
+		}
+
+		@Override
+		public String toString() {
+			return "added=" + added + ", removed=" + removed;
+		}
+	}
+}
@@ -13,6 +13,7 @@ package org.codestorming.collection.chrono;
 
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.function.Consumer;
 
 /**
  * {@link Collection} that delegates operation to its internal collection defined on creation.
@@ -48,6 +49,11 @@ class DelegatedCollection<E> implements Collection<E> {
 		return delegate.iterator();
 	}
 
+	@Override
+	public void forEach(Consumer<? super E> action) {
+		delegate.forEach(action);
+	}
+
 	@Override
 	public Object[] toArray() {
 		return delegate.toArray();
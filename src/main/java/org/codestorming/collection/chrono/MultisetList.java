@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2012-2018 Codestorming.org
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Codestorming - initial API and implementation
+ */
+package org.codestorming.collection.chrono;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.codestorming.collection.Footprints;
+
+/**
+ * {@link java.util.List List} backed by a multiset: each distinct element is stored once with its number of
+ * occurrences.
+ * <p>
+ * The {@link #add(Object) add}, {@link #remove(Object) remove} and {@link #contains(Object) contains} operations run in
+ * constant time. The occurrences of an element are adjacent, the distinct elements being in the order of their first
+ * addition, so the positional accesses ({@link #get(int) get}, {@link #remove(int) remove}) cost a scan of the distinct
+ * elements. The other positional modifications are not supported.
+ *
+ * @author Thaedrik [thaedrik@codestorming.org]
+ * @since 2.1
+ */
+class MultisetList<E> extends AbstractList<E> implements Serializable {
+
+	private static final long serialVersionUID = 7163302186445103512L;
+
+	/**
+	 * Number of occurrences of each element, in an array of length 1.
+	 */
+	private final Map<E, int[]> counts = new LinkedHashMap<>();
+
+	private int size;
+
+	MultisetList() {
+		// Empty list
+	}
+
+	/**
+	 * Creates a new {@code MultisetList} containing the elements of the given collection.
+	 *
+	 * @param c The elements of the list.
+	 */
+	MultisetList(Collection<? extends E> c) {
+		addAll(c);
+	}
+
+	@Override
+	public boolean add(E e) {
+		final int[] count = counts.get(e);
+		if (count == null) {
+			counts.put(e, new int[] {1});
+		} else {
+			count[0]++;
+		}
+		size++;
+		modCount++;
+		return true;
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		final int[] count = counts.get(o);
+		if (count == null) {
+			return false;
+		}// else
+		if (--count[0] == 0) {
+			counts.remove(o);
+		}
+		size--;
+		modCount++;
+		return true;
+	}
+
+	@Override
+	public E remove(int index) {
+		final E e = get(index);
+		remove(e);
+		return e;
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		return counts.containsKey(o);
+	}
+
+	@Override
+	public int indexOf(Object o) {
+		if (!counts.containsKey(o)) {
+			return -1;
+		}// else
+		int index = 0;
+		for (Map.Entry<E, int[]> entry : counts.entrySet()) {
+			final E e = entry.getKey();
+			if (e == null ? o == null : e.equals(o)) {
+				return index;
+			}// else
+			index += entry.getValue()[0];
+		}
+		return -1;
+	}
+
+	@Override
+	public int lastIndexOf(Object o) {
+		final int index = indexOf(o);
+		return index < 0 ? index : index + counts.get(o)[0] - 1;
+	}
+
+	@Override
+	public E get(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}// else
+		int remaining = index;
+		for (Map.Entry<E, int[]> entry : counts.entrySet()) {
+			remaining -= entry.getValue()[0];
+			if (remaining < 0) {
+				return entry.getKey();
+			}
+		}
+		throw new ConcurrentModificationException();
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public void clear() {
+		counts.clear();
+		size = 0;
+		modCount++;
+	}
+
+	@Override
+	public Iterator<E> iterator() {
+		return new Iterator<E>() {
+			private final Iterator<Map.Entry<E, int[]>> entries = counts.entrySet().iterator();
+
+			private Map.Entry<E, int[]> entry;
+
+			/**
+			 * Number of occurrences of the current entry already returned.
+			 */
+			private int returned;
+
+			private boolean removable;
+
+			private int expectedModCount = modCount;
+
+			@Override
+			public boolean hasNext() {
+				return entry != null && returned < entry.getValue()[0] || entries.hasNext();
+			}
+
+			@Override
+			public E next() {
+				if (modCount != expectedModCount) {
+					throw new ConcurrentModificationException();
+				}// else
+				if (entry == null || returned >= entry.getValue()[0]) {
+					if (!entries.hasNext()) {
+						throw new NoSuchElementException();
+					}// else
+					entry = entries.next();
+					returned = 0;
+				}
+				returned++;
+				removable = true;
+				return entry.getKey();
+			}
+
+			@Override
+			public void remove() {
+				if (!removable) {
+					throw new IllegalStateException();
+				} else if (modCount != expectedModCount) {
+					throw new ConcurrentModificationException();
+				}// else
+				removable = false;
+				returned--;
+				if (--entry.getValue()[0] == 0) {
+					entries.remove();
+				}
+				size--;
+				expectedModCount = ++modCount;
+			}
+		};
+	}
+
+	/**
+	 * Returns the estimated retained size of this list, in bytes.
+	 *
+	 * @return the estimated retained size of this list.
+	 */
+	long retainedBytes() {
+		final int distinct = counts.size();
+		return Footprints.objectBytes(1, 8) + Footprints.linkedHashMapBytes(distinct)
+				+ distinct * Footprints.primitiveArrayBytes(1, 4);
+	}
+}